@@ -97,6 +97,7 @@ public class ABsdn {
 
         Config.Client_Table = MyProject.ReadWriteExcelFile.ReadFromExcel("Network_access.xls", 0);
         Config.Server_Table = MyProject.ReadWriteExcelFile.ReadFromExcel("Network_access.xls", 1);
+        Config.Attributes = new ExcelAttributeRepository("Network_access.xls");
 
         System.out.println(Config.Client_Table);
 
@@ -0,0 +1,224 @@
+package MyProject;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * SecShield access-control check, shared by the simulated NOS and real CoAP
+ * server handlers. Every method works on an immutable {@link AccessRequest}
+ * and on thread-safe state only (compiled policies, attribute repository,
+ * striped decision caches), so it can be called from several threads at once.
+ */
+public class AccessController {
+
+    public static AttributeRepository getAttributeRepository() {
+        AttributeRepository repository = Config.Attributes;
+        if (repository == null) {
+            synchronized (AccessController.class) {
+                repository = Config.Attributes;
+                if (repository == null) {
+                    try {
+                        repository = new ExcelAttributeRepository("Network_access.xls");
+                        Config.Attributes = repository;
+                    } catch (IOException ex) {
+                        Logger.getLogger(AccessController.class.getName()).log(Level.SEVERE, null, ex);
+                    }
+                }
+            }
+        }
+        return repository;
+    }
+
+    /**
+     * Proposed method: ABAC decision, cached in Config.TEMP for Time_Flag.
+     */
+    public static boolean checkProposed(AccessRequest request) {
+        int src = request.getSrc();
+        int dst = request.getDst();
+        System.out.println("Checking time flag....");//check in TEMP
+        System.out.println("(src , dst) = (" + src + " , " + dst + ")");
+
+        PolicyEngine.CompiledPolicySet policies = Config.ABAC_Engine.getPolicySet();
+        byte cached = Config.TEMP.getValidDecision(src, dst, request.getTime(), Config.Time_Flag, policies.getVersion());
+        if (cached != DecisionCache.UNKNOWN) {
+            Config.No_AC.incrementAndGet();
+            return cached == DecisionCache.PERMIT; // cached permit or deny
+        }
+
+        // No decision for (src, dst), or expired
+        System.out.println("Checking Network access attributes....");
+        boolean accessGranted = evaluateABAC(policies, request);
+        System.out.println("Access granted: " + accessGranted);
+
+        Config.TEMP.put(src, dst, request.getTime(), DecisionCache.toDecision(accessGranted),
+                DecisionCache.NO_OBLIGATIONS, policies.getVersion());
+        Config.AC.incrementAndGet();
+        return accessGranted;
+    }
+
+    /**
+     * Base method: XACML decision, cached in Config.Last_Request_Time for
+     * Time_Flag.
+     */
+    public static boolean checkBase(AccessRequest request) {
+        int src = request.getSrc();
+        int dst = request.getDst();
+
+        XacmlPolicySet xacml = MyXXACML.getPolicySet();
+        byte cached = Config.Last_Request_Time.getValidDecision(src, dst, request.getTime(), Config.Time_Flag, xacml.getVersion());
+        if (cached != DecisionCache.UNKNOWN) {
+            Config.No_AC.incrementAndGet();//exppiration time not expired
+            return cached == DecisionCache.PERMIT; // cached permit or deny
+        }
+
+        System.out.println("Checking AC ....");
+        XacmlPolicySet.Rule rule = xacml.decide(xacmlAttributes(request));
+        boolean tag = rule != null && rule.getEffect() == XacmlPolicySet.Decision.PERMIT;
+        Config.Last_Request_Time.put(src, dst, request.getTime(), DecisionCache.toDecision(tag),
+                (rule == null) ? DecisionCache.NO_OBLIGATIONS : rule.getObligations(), xacml.getVersion());
+        Config.AC.incrementAndGet();
+        return tag;
+    }
+
+    /**
+     * Checks a burst of requests with the method selected in Config.Method.
+     * Requests are grouped by their (src, dst) pair, the decision cache key:
+     * attributes are fetched once per distinct VM id and each distinct pair
+     * is looked up in the cache and, when needed, evaluated only once, for
+     * its first request in the list. The decisions are fanned back out to
+     * every request of the group.
+     *
+     * AC / No_AC count distinct pairs, evaluated or answered by the cache.
+     *
+     * @return the decision of each request, in list order
+     */
+    public static boolean[] evaluateBatch(List<AccessRequest> requests) {
+        boolean[] results = new boolean[requests.size()];
+        if (requests.isEmpty()) {
+            return results;
+        }
+        boolean proposed = Config.Method.startsWith("Proposed");
+        PolicyEngine.CompiledPolicySet policies = proposed ? Config.ABAC_Engine.getPolicySet() : null;
+        XacmlPolicySet xacml = proposed ? null : MyXXACML.getPolicySet();
+        ConcurrentDecisionCache cache = proposed ? Config.TEMP : Config.Last_Request_Time;
+        int policyVersion = proposed ? policies.getVersion() : xacml.getVersion();
+
+        AttributeRepository repository = getAttributeRepository();
+        Map<Integer, SubjectAttributes> subjects = new HashMap<Integer, SubjectAttributes>();
+        Map<Integer, ObjectAttributes> objects = new HashMap<Integer, ObjectAttributes>();
+        Map<Long, Boolean> decided = new HashMap<Long, Boolean>();
+
+        for (int i = 0; i < results.length; i++) {
+            AccessRequest request = requests.get(i);
+            int src = request.getSrc();
+            int dst = request.getDst();
+            Long key = DecisionCache.key(src, dst);
+            Boolean decision = decided.get(key);
+            if (decision == null) {
+                byte cached = cache.getValidDecision(src, dst, request.getTime(), Config.Time_Flag, policyVersion);
+                if (cached != DecisionCache.UNKNOWN) {
+                    Config.No_AC.incrementAndGet();
+                    decision = (cached == DecisionCache.PERMIT);
+                } else {
+                    SubjectAttributes subject = findSubject(repository, subjects, src);
+                    ObjectAttributes object = findObject(repository, objects, dst);
+                    if (proposed) {
+                        decision = evaluateABAC(policies, request, subject, object);
+                        cache.put(src, dst, request.getTime(), DecisionCache.toDecision(decision),
+                                DecisionCache.NO_OBLIGATIONS, policyVersion);
+                    } else {
+                        XacmlPolicySet.Rule rule = xacml.decide(xacmlAttributes(subject, object));
+                        decision = rule != null && rule.getEffect() == XacmlPolicySet.Decision.PERMIT;
+                        cache.put(src, dst, request.getTime(), DecisionCache.toDecision(decision),
+                                (rule == null) ? DecisionCache.NO_OBLIGATIONS : rule.getObligations(), policyVersion);
+                    }
+                    Config.AC.incrementAndGet();
+                }
+                decided.put(key, decision);
+            }
+            results[i] = decision;
+        }
+        return results;
+    }
+
+    private static SubjectAttributes findSubject(AttributeRepository repository,
+            Map<Integer, SubjectAttributes> found, int id) {
+        if (repository == null) {
+            return null;
+        }
+        if (!found.containsKey(id)) {
+            found.put(id, repository.findSubject(id));
+        }
+        return found.get(id);
+    }
+
+    private static ObjectAttributes findObject(AttributeRepository repository,
+            Map<Integer, ObjectAttributes> found, int id) {
+        if (repository == null) {
+            return null;
+        }
+        if (!found.containsKey(id)) {
+            found.put(id, repository.findObject(id));
+        }
+        return found.get(id);
+    }
+
+    /**
+     * Evaluates the ABAC policy set for the request. As in the original
+     * simulation, one client attribute and one server attribute, each in a
+     * column picked at random independently of the other, are checked against
+     * the policies, together with the action and the server IP. The original
+     * drew the server column among 6 and kept the previously read server
+     * attribute when it hit the missing sixth column; here it is drawn among
+     * the server columns only.
+     */
+    static boolean evaluateABAC(PolicyEngine.CompiledPolicySet policies, AccessRequest request) {
+        AttributeRepository repository = getAttributeRepository();
+        SubjectAttributes subject = (repository == null) ? null : repository.findSubject(request.getSrc());
+        ObjectAttributes object = (repository == null) ? null : repository.findObject(request.getDst());
+        return evaluateABAC(policies, request, subject, object);
+    }
+
+    static boolean evaluateABAC(PolicyEngine.CompiledPolicySet policies, AccessRequest request,
+            SubjectAttributes subject, ObjectAttributes object) {
+        if (subject == null || object == null) {
+            System.out.println("Unknown client or server: " + request);
+            return false;
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String subAtt = subject.getAttribute(random.nextInt(SubjectAttributes.COLUMNS));
+        String objAtt = object.getAttribute(random.nextInt(ObjectAttributes.COLUMNS));
+        if (Config.ABAC_Parallel) {
+            return policies.evaluateParallel(subAtt, request.getAction(), objAtt, object.getIP());
+        }
+        return policies.evaluate(subAtt, request.getAction(), objAtt, object.getIP());
+    }
+
+    /**
+     * Builds the XACML request attributes (AttributeDesignator id -> value).
+     */
+    static Map<String, String> xacmlAttributes(AccessRequest request) {
+        AttributeRepository repository = getAttributeRepository();
+        SubjectAttributes subject = (repository == null) ? null : repository.findSubject(request.getSrc());
+        ObjectAttributes object = (repository == null) ? null : repository.findObject(request.getDst());
+        return xacmlAttributes(subject, object);
+    }
+
+    static Map<String, String> xacmlAttributes(SubjectAttributes subject, ObjectAttributes object) {
+        Map<String, String> attributes = new HashMap<String, String>();
+        if (subject != null) {
+            attributes.put("Location", String.valueOf(subject.getSource()));
+        }
+        if (object != null) {
+            attributes.put("IP", object.getIP());
+            attributes.put("URI", object.getURI());
+        }
+        return attributes;
+    }
+}
@@ -0,0 +1,35 @@
+package MyProject;
+
+/**
+ * Immutable description of one access request: the (src, dst) VM pair of a
+ * packet, its flow, the CoAP action and the simulation time it was issued at.
+ * It replaces the src/dst/flowId/pkt fields the security check used to share
+ * with addPacketToChannel, so a request can be checked from any thread.
+ */
+public final class AccessRequest {
+
+    private final int src;
+    private final int dst;
+    private final int flowId;
+    private final String action;
+    private final double time;
+
+    public AccessRequest(int src, int dst, int flowId, String action, double time) {
+        this.src = src;
+        this.dst = dst;
+        this.flowId = flowId;
+        this.action = (action == null) ? "" : action;
+        this.time = time;
+    }
+
+    public int getSrc() { return src; }
+    public int getDst() { return dst; }
+    public int getFlowId() { return flowId; }
+    public String getAction() { return action; }
+    public double getTime() { return time; }
+
+    @Override
+    public String toString() {
+        return "(src , dst) = (" + src + " , " + dst + "), flow=" + flowId + ", action=" + action + ", time=" + time;
+    }
+}
@@ -0,0 +1,21 @@
+package MyProject;
+
+/**
+ * Source of the subject (CoAP client) and object (CoAP server) attributes
+ * used by the access-control check. Implementations are expected to answer in
+ * constant time, without any I/O on the request path.
+ */
+public interface AttributeRepository {
+
+    /**
+     * @param vmId client id (column 0 of the "Clients" sheet)
+     * @return the client attributes, or null if the id is unknown
+     */
+    public SubjectAttributes findSubject(int vmId);
+
+    /**
+     * @param id server id (column 0 of the "Servers" sheet)
+     * @return the server attributes, or null if the id is unknown
+     */
+    public ObjectAttributes findObject(int id);
+}
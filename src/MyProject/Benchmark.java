@@ -0,0 +1,95 @@
+package MyProject;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Minimal micro-benchmark harness for the decision path (the Ant project has
+ * no JMH). A benchmark is set up once, its operation is run for a warm-up
+ * phase and then timed over a number of measured iterations; the mean time
+ * per operation is reported.
+ *
+ * The code under test prints a lot on System.out, which would be measured
+ * too, so System.out is silenced while a benchmark runs. Results are printed
+ * on the original stream.
+ */
+public abstract class Benchmark {
+
+    static final PrintStream NULL_OUT = new PrintStream(new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    });
+
+    // Keeps the JIT from discarding the operations
+    static volatile int sink;
+
+    private final String name;
+    private final String parameters;
+
+    protected Benchmark(String name, String parameters) {
+        this.name = name;
+        this.parameters = parameters;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getParameters() {
+        return parameters;
+    }
+
+    protected void setUp() throws Exception {
+    }
+
+    /**
+     * One operation of the benchmark.
+     *
+     * @param i iteration number, from 0
+     * @return any value depending on the work done
+     */
+    protected abstract int operation(int i) throws Exception;
+
+    protected void tearDown() throws Exception {
+    }
+
+    public static void printHeader(PrintStream out) {
+        out.printf("%-36s %-34s %10s %14s %14s%n", "benchmark", "parameters", "ops", "ns/op", "ops/s");
+    }
+
+    /**
+     * Runs the benchmark and prints its result on out.
+     *
+     * @return the mean time of one operation, in ns
+     */
+    public static double run(Benchmark benchmark, int warmup, int iterations, PrintStream out) throws Exception {
+        PrintStream stdout = System.out;
+        System.setOut(NULL_OUT);
+        double nsPerOp;
+        try {
+            benchmark.setUp();
+            int result = 0;
+            for (int i = 0; i < warmup; i++) {
+                result += benchmark.operation(i);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                result += benchmark.operation(warmup + i);
+            }
+            long elapsed = System.nanoTime() - start;
+            sink = result;
+            benchmark.tearDown();
+            nsPerOp = (double) elapsed / iterations;
+        } finally {
+            System.setOut(stdout);
+        }
+        out.printf("%-36s %-34s %10d %14.1f %14.0f%n", benchmark.getName(), benchmark.getParameters(),
+                iterations, nsPerOp, 1e9 / nsPerOp);
+        return nsPerOp;
+    }
+}
@@ -0,0 +1,245 @@
+package MyProject;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.cloudbus.cloudsim.CloudletSchedulerTimeShared;
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.sdn.nos.ChannelManager;
+import org.cloudbus.cloudsim.sdn.physicalcomponents.Link;
+import org.cloudbus.cloudsim.sdn.physicalcomponents.Node;
+import org.cloudbus.cloudsim.sdn.physicalcomponents.switches.Switch;
+import org.cloudbus.cloudsim.sdn.sfc.ServiceFunctionChainPolicy;
+import org.cloudbus.cloudsim.sdn.virtualcomponents.Channel;
+import org.cloudbus.cloudsim.sdn.virtualcomponents.FlowConfig;
+import org.cloudbus.cloudsim.sdn.virtualcomponents.SDNVm;
+
+/**
+ * Channel bandwidth adjustment of ChannelManager: the incremental
+ * adjustChangedChannels() against the full adjustAllChannel().
+ *
+ * The benchmark first verifies that both give the same allocation: a random
+ * sequence of channel additions, removals and bandwidth updates is run over a
+ * random topology, and after every incremental adjustment the allocated
+ * bandwidth of each channel is compared with the one of a full adjustment.
+ * Any mismatch fails the run.
+ *
+ * Then it measures one bandwidth update of a dedicated channel followed by
+ * the adjustment, with a growing number of channels.
+ *
+ * Usage: ChannelAdjustmentBenchmark [channels,...] [iterations] [operations]
+ */
+public class ChannelAdjustmentBenchmark {
+
+    private static final int SWITCHES = 64;
+    private static final int LINKS = 128;
+    private static final int VMS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        String[] sizes = (args.length > 0) ? args[0].split(",") : new String[]{"100", "1000", "10000"};
+        int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : 2000;
+        int operations = (args.length > 2) ? Integer.parseInt(args[2]) : 3000;
+        int warmup = iterations / 2;
+
+        CloudSim.init(1, Calendar.getInstance(), false);
+        verify(operations, 7);
+
+        Benchmark.printHeader(System.out);
+        for (String size : sizes) {
+            int channels = Integer.parseInt(size.trim());
+            Benchmark.run(new Adjustment(false, channels), warmup, iterations, System.out);
+            Benchmark.run(new Adjustment(true, channels), warmup, iterations, System.out);
+        }
+    }
+
+    /**
+     * Runs random channel operations, comparing every incremental adjustment
+     * with a full one.
+     *
+     * @throws IllegalStateException if a channel gets a different bandwidth
+     */
+    static void verify(int operations, long seed) {
+        Random random = new Random(seed);
+        Topology topology = new Topology(random, 8, 14);
+        ChannelManager manager = new ChannelManager(new IdleNetworkOperatingSystem(), null, null);
+        List<Channel> channels = new ArrayList<Channel>();
+        int flowId = 0;
+        int adjustments = 0;
+        int mismatches = 0;
+
+        for (int i = 0; i < operations; i++) {
+            int op = random.nextInt(5);
+            if (op <= 1 || channels.isEmpty()) {
+                Channel ch = topology.newChannel(random, random.nextBoolean() ? -1 : flowId++, 20);
+                if (ch != null && manager.findChannel(ch.getSrcId(), ch.getDstId(), ch.getChId()) == null) {
+                    manager.addChannel(ch.getSrcId(), ch.getDstId(), ch.getChId(), ch);
+                    channels.add(ch);
+                }
+            } else if (op == 2) {
+                Channel ch = channels.remove(random.nextInt(channels.size()));
+                manager.removeChannel(ch.getSrcId(), ch.getDstId(), ch.getChId());
+            } else if (op == 3) {
+                Channel ch = channels.get(random.nextInt(channels.size()));
+                if (ch.getChId() != -1) {
+                    manager.updateChannelBandwidth(ch.getSrcId(), ch.getDstId(), ch.getChId(), 5 + random.nextInt(60));
+                }
+            } else {
+                manager.adjustChangedChannels();
+                double[] incremental = new double[channels.size()];
+                for (int n = 0; n < incremental.length; n++) {
+                    incremental[n] = channels.get(n).getAllocatedBandwidth();
+                }
+                manager.adjustAllChannel();
+                for (int n = 0; n < incremental.length; n++) {
+                    if (incremental[n] != channels.get(n).getAllocatedBandwidth()) {
+                        mismatches++;
+                    }
+                }
+                adjustments++;
+            }
+        }
+
+        System.out.println("adjustChangedChannels() vs adjustAllChannel(): " + operations + " operations, "
+                + adjustments + " adjustments, " + mismatches + " mismatches");
+        if (mismatches != 0) {
+            throw new IllegalStateException("adjustChangedChannels() differs from adjustAllChannel()");
+        }
+    }
+
+    /**
+     * Switches connected by random links.
+     */
+    static class Topology {
+
+        private final Switch[] switches;
+        private final Map<Node, List<Link>> links = new HashMap<Node, List<Link>>();
+        // Channels account their processed bytes to the source VM
+        private final SDNVm vm = new SDNVm(0, 0, 100, 1, 100, 100, 100, "Xen", new CloudletSchedulerTimeShared());
+
+        Topology(Random random, int switchNum, int linkNum) {
+            switches = new Switch[switchNum];
+            for (int i = 0; i < switchNum; i++) {
+                switches[i] = new Switch("switch" + i, 1000, 1, 1, 1);
+            }
+            for (int i = 0; i < linkNum; i++) {
+                int from = random.nextInt(switchNum);
+                int to = random.nextInt(switchNum);
+                if (from == to) {
+                    continue;
+                }
+                Link link = new Link(switches[from], switches[to], 1, 10000 + random.nextInt(4) * 5000);
+                addLink(switches[from], link);
+                addLink(switches[to], link);
+            }
+        }
+
+        private void addLink(Node node, Link link) {
+            List<Link> nodeLinks = links.get(node);
+            if (nodeLinks == null) {
+                nodeLinks = new ArrayList<Link>();
+                links.put(node, nodeLinks);
+            }
+            nodeLinks.add(link);
+        }
+
+        /**
+         * Creates a channel between two random VMs over a random route of 1 to
+         * 4 links.
+         *
+         * @param flowId -1 for a shared channel
+         * @return the channel, or null if the random start switch has no link
+         */
+        Channel newChannel(Random random, int flowId, int vms) {
+            Node node = switches[random.nextInt(switches.length)];
+            if (!links.containsKey(node)) {
+                return null;
+            }
+            List<Node> route = new ArrayList<Node>();
+            List<Link> routeLinks = new ArrayList<Link>();
+            route.add(node);
+            int length = 1 + random.nextInt(4);
+            for (int i = 0; i < length; i++) {
+                List<Link> candidates = links.get(node);
+                Link link = candidates.get(random.nextInt(candidates.size()));
+                if (routeLinks.contains(link)) {
+                    break;
+                }
+                node = link.getOtherNode(node);
+                routeLinks.add(link);
+                route.add(node);
+            }
+            double bandwidth = (flowId == -1) ? 0 : 10 + random.nextInt(40);
+            return new Channel(flowId, random.nextInt(vms), random.nextInt(vms), route, routeLinks, bandwidth, vm, vm);
+        }
+    }
+
+    /**
+     * A NOS that only hosts the channel manager: the adjustments are called
+     * directly instead of being scheduled.
+     */
+    static class IdleNetworkOperatingSystem extends NetworkOperatingSystem {
+
+        IdleNetworkOperatingSystem() {
+            super("benchmark-nos");
+        }
+
+        @Override
+        protected boolean deployApplication(List<Vm> vms, Collection<FlowConfig> links, List<ServiceFunctionChainPolicy> sfcPolicy) {
+            return true;
+        }
+
+        @Override
+        public void sendAdjustAllChannelEvent() {
+        }
+    }
+
+    static class Adjustment extends Benchmark {
+
+        private final boolean incremental;
+        private final int channelNum;
+        private final Random random = new Random(1);
+        private ChannelManager manager;
+        private List<Channel> dedicated;
+
+        Adjustment(boolean incremental, int channelNum) {
+            super("channel bandwidth adjustment", (incremental ? "changed links" : "all channels") + ", " + channelNum + " channels");
+            this.incremental = incremental;
+            this.channelNum = channelNum;
+        }
+
+        @Override
+        protected void setUp() throws Exception {
+            Topology topology = new Topology(random, SWITCHES, LINKS);
+            manager = new ChannelManager(new IdleNetworkOperatingSystem(), null, null);
+            dedicated = new ArrayList<Channel>();
+            int flowId = 0;
+            while (manager.getTotalChannelNum() < channelNum) {
+                Channel ch = topology.newChannel(random, random.nextBoolean() ? -1 : flowId++, VMS);
+                if (ch != null && manager.findChannel(ch.getSrcId(), ch.getDstId(), ch.getChId()) == null) {
+                    manager.addChannel(ch.getSrcId(), ch.getDstId(), ch.getChId(), ch);
+                    if (ch.getChId() != -1) {
+                        dedicated.add(ch);
+                    }
+                }
+            }
+            manager.adjustAllChannel();
+        }
+
+        @Override
+        protected int operation(int i) throws Exception {
+            Channel ch = dedicated.get(random.nextInt(dedicated.size()));
+            manager.updateChannelBandwidth(ch.getSrcId(), ch.getDstId(), ch.getChId(), 1 + random.nextInt(10));
+            if (incremental) {
+                manager.adjustChangedChannels();
+            } else {
+                manager.adjustAllChannel();
+            }
+            return (int) ch.getAllocatedBandwidth();
+        }
+    }
+}
@@ -29,6 +29,7 @@ import org.zoolu.util.SortedVector;
 import it.unipr.netsec.mjcoap.coap.option.*;
 
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Vector;
 import MyProject.Packet;
@@ -47,6 +48,15 @@ import it.unipr.netsec.mjcoap.coap.message.CoapResponseCode;
  * value comes a sequence of zero or more CoAP Options in Type-Length-Value
  * (TLV) format, optionally followed by a payload which takes up the rest of the
  * datagram.
+ * <p>
+ * A received message can be created with {@link #wrap(byte[], int, int)} as a
+ * view over the receive buffer: only the header and the token are decoded
+ * upfront, options are parsed on first access and the payload is copied out of
+ * the buffer only if asked for (see {@link #getPayloadBuffer()} for reading it
+ * in place). Such a message is only valid until the buffer is reused: code
+ * that keeps it must {@link #detach() detach} it first, and the receiver
+ * {@link #release() releases} it afterwards, so that a message kept without
+ * being detached fails instead of reading a reused buffer.
  */
 public class CoapMessage {
 
@@ -119,6 +129,33 @@ public class CoapMessage {
      * Marker denotes a zero-length payload
      */
     byte[] payload = null;
+
+    /**
+     * Not yet decoded part of a received message, from body_off to body_end:
+     * the options (if options_pending) followed by the payload marker and
+     * payload, or the payload alone
+     */
+    byte[] body = null;
+    int body_off = 0;
+    int body_end = 0;
+
+    /**
+     * Whether the options are still to be parsed from the body
+     */
+    boolean options_pending = false;
+
+    /**
+     * Whether the body can be kept (a private copy, or an immutable shared
+     * encoding), or it is still the receive buffer
+     */
+    boolean body_owned = false;
+
+    /**
+     * Whether the receive buffer of the body has been given back, see
+     * {@link #release()}
+     */
+    boolean released = false;
+
     Boolean MessageEncrypted = false;
 
     /**
@@ -141,6 +178,7 @@ public class CoapMessage {
      * @param msg a CoAP message
      */
     public CoapMessage(CoapMessage msg) {
+        msg.decode();
         init(msg.type, msg.code, msg.message_id,
                 msg.token, (Vector<CoapOption>) msg.options.toVector(),
                 msg.payload);
@@ -255,6 +293,7 @@ public class CoapMessage {
      */
     public CoapMessage(byte[] buf, int off, int len) {
         init(buf, off, len);
+        decode();
     }
 
     /**
@@ -264,16 +303,52 @@ public class CoapMessage {
      */
     public CoapMessage(byte[] data) {
         init(data, 0, data.length);
+        decode();
     }
 
     /**
-     * Initializes the CoapMessage.
+     * Creates a new CoapMessage that is a lazily decoded view of the given
+     * buffer.
+     *
+     * @param buf buffer containing the CoAP message
+     * @param off message offset within the buffer
+     * @param len message length
+     * @param lazy must be <i>true</i>
+     */
+    protected CoapMessage(byte[] buf, int off, int len, boolean lazy) {
+        init(buf, off, len);
+        if (!lazy) {
+            decode();
+        }
+    }
+
+    /**
+     * Creates a message that is a view of a received datagram. The header and
+     * the token are decoded, and the option framing is checked, but options
+     * and payload are left in the buffer until accessed. {@link #detach()}
+     * must be called before the buffer is modified or reused.
+     *
+     * @param buf buffer containing the CoAP message
+     * @param off message offset within the buffer
+     * @param len message length
+     * @return the message
+     */
+    public static CoapMessage wrap(byte[] buf, int off, int len) {
+        return new CoapMessage(buf, off, len, true);
+    }
+
+    /**
+     * Initializes the CoapMessage, decoding the header and the token. Options
+     * and payload are left in the body, whose framing is checked.
      *
      * @param buf buffer containing the CoAP message
      * @param off message offset within the buffer
      * @param len message length
      */
     private void init(byte[] buf, int off, int len) {
+        if (len < 4) {
+            throw new CoapMessageFormatException("message too short (" + len + ")");
+        }
         int index = off;
         int ver = (buf[index] >> 6) & 0x3;
         if (ver != VER) {
@@ -294,23 +369,125 @@ public class CoapMessage {
             System.arraycopy(buf, index, token, 0, token_len);
             index += token_len;
         }
+        body = buf;
+        body_off = index;
+        body_end = off + len;
+        options_pending = true;
+        body_owned = false;
+        checkBody();
+    }
+
+    /**
+     * Checks the framing of the options and payload in the body, without
+     * decoding them.
+     */
+    private void checkBody() {
+        int index = body_off;
+        while (index < body_end && body[index] != PAYLOAD_MARKER) {
+            int delta = (body[index] >> 4) & 0xf;
+            int len = body[index++] & 0xf;
+            if (delta == 15 || len == 15) {
+                throw new CoapMessageFormatException("invalid option format");
+            }
+            index += (delta == 13) ? 1 : (delta == 14) ? 2 : 0;
+            if (len == 13) {
+                len = (index < body_end) ? 13 + (body[index] & 0xff) : 0;
+                index++;
+            } else if (len == 14) {
+                len = (index + 1 < body_end) ? 269 + (((body[index] & 0xff) << 8) | (body[index + 1] & 0xff)) : 0;
+                index += 2;
+            }
+            index += len;
+        }
+        if (index > body_end) {
+            throw new CoapMessageFormatException("option exceeding the message length");
+        }
+        if (index + 1 == body_end) {
+            throw new CoapMessageFormatException("payload marker without a payload");
+        }
+    }
+
+    /**
+     * Parses the options still in the body, leaving only the payload there.
+     */
+    private synchronized void decodeOptions() {
+        checkReleased();
+        if (!options_pending) {
+            return;
+        }
+        // else
+        int index = body_off;
         int prev_opt_num = 0;
-        while (index < len && buf[index] != PAYLOAD_MARKER) {
-            CoapOption opt = CoapOption.parseCoapOption(prev_opt_num, buf, index);
+        while (index < body_end && body[index] != PAYLOAD_MARKER) {
+            CoapOption opt = CoapOption.parseCoapOption(prev_opt_num, body, index);
             options.addElement(opt);
             //addSortedElement(options,opt);
             index += opt.getLength(prev_opt_num);
             prev_opt_num = opt.getOptionNumber();
         }
-        if (index < len) {
+        if (index < body_end) {
             index++;
-            if (index == len) {
-                throw new CoapMessageFormatException("payload marker without a payload");
-            }
-            // else
-            int payload_len = off + len - index;
+        }
+        body_off = index;
+        options_pending = false;
+    }
+
+    /**
+     * Decodes the options and copies the payload out of the body.
+     */
+    protected synchronized void decode() {
+        if (body == null) {
+            return;
+        }
+        // else
+        decodeOptions();
+        int payload_len = body_end - body_off;
+        if (payload_len > 0) {
             this.payload = new byte[payload_len];
-            System.arraycopy(buf, index, this.payload, 0, payload_len);
+            System.arraycopy(body, body_off, this.payload, 0, payload_len);
+        }
+        body = null;
+    }
+
+    /**
+     * Makes this message independent from the buffer it has been received in,
+     * copying the part of it that has not been decoded yet (if any). The
+     * buffer can then be reused.
+     */
+    public synchronized void detach() {
+        checkReleased();
+        if (body == null || body_owned) {
+            return;
+        }
+        // else
+        int body_len = body_end - body_off;
+        byte[] copy = new byte[body_len];
+        System.arraycopy(body, body_off, copy, 0, body_len);
+        body = copy;
+        body_off = 0;
+        body_end = body_len;
+        body_owned = true;
+    }
+
+    /**
+     * Gives back the receive buffer of a message created with
+     * {@link #wrap(byte[], int, int)}, before the buffer is reused. Unless the
+     * message has been detached or fully decoded, any later access to its
+     * options or payload throws an IllegalStateException. Header and token
+     * stay readable.
+     */
+    public synchronized void release() {
+        if (body != null && !body_owned) {
+            released = true;
+        }
+    }
+
+    /**
+     * Fails if the body is a receive buffer that has been released.
+     */
+    private void checkReleased() {
+        if (released) {
+            throw new IllegalStateException("received message used after its buffer was released: detach() it to keep it");
         }
     }
 
@@ -594,6 +771,7 @@ public class CoapMessage {
      * @return this message
      */
     public synchronized CoapMessage setOptions(CoapOption[] options) {
+        decodeOptions();
         this.options.clear();
         if (options != null) {
             this.options.addElements(options);
@@ -608,6 +786,7 @@ public class CoapMessage {
      * @return this message
      */
     public synchronized CoapMessage setOptions(List<CoapOption> options) {
+        decodeOptions();
         this.options.clear();
         if (options != null) {
             this.options.addElements(options);
@@ -635,6 +814,7 @@ public class CoapMessage {
      * @return this message
      */
     public synchronized CoapMessage removeOption(int opt_number) {
+        decodeOptions();
         for (int i = 0; i < options.size(); i++) {
             CoapOption opt_i = (CoapOption) options.elementAt(i);
             int comparison = opt_i.getOptionNumber() - opt_number;
@@ -653,6 +833,7 @@ public class CoapMessage {
      * @return an array of all message options
      */
     public synchronized CoapOption[] getOptions() {
+        decodeOptions();
         //return (CoapOption[])options.toArray();
         return (CoapOption[]) options.toArray(new CoapOption[options.size()]);
     }
@@ -664,6 +845,7 @@ public class CoapMessage {
      * @return <i>true</i> if the option is present
      */
     public synchronized boolean hasOption(int opt_num) {
+        decodeOptions();
         for (int i = 0; i < options.size(); i++) {
             CoapOption opt = (CoapOption) options.elementAt(i);
             if (opt.getOptionNumber() == opt_num) {
@@ -685,6 +867,7 @@ public class CoapMessage {
      * <i>null</i>
      */
     public synchronized CoapOption getOption(int opt_num) {
+        decodeOptions();
         for (int i = 0; i < options.size(); i++) {
             CoapOption opt = (CoapOption) options.elementAt(i);
             if (opt.getOptionNumber() == opt_num) {
@@ -705,6 +888,7 @@ public class CoapMessage {
      * @return the options with the given option number, if any, or <i>null</i>
      */
     public synchronized CoapOption[] getOptions(int opt_num) {
+        decodeOptions();
         Vector<CoapOption> temp = new Vector<CoapOption>();
         for (int i = 0; i < options.size(); i++) {
             CoapOption opt = (CoapOption) options.elementAt(i);
@@ -723,6 +907,38 @@ public class CoapMessage {
         return null;
     }
 
+    /**
+     * Copies the values of all options with a given number into a buffer, each
+     * value preceded by a separator byte, without creating new objects (e.g.
+     * the request URI path from the Uri-Path options with separator '/').
+     *
+     * @param opt_num the option number
+     * @param separator the separator byte
+     * @param buf the buffer where the values have to be written
+     * @param off the offset within the buffer
+     * @return the number of bytes written, or -1 if the buffer is too short
+     */
+    public synchronized int getOptionValues(int opt_num, byte separator, byte[] buf, int off) {
+        decodeOptions();
+        int index = off;
+        for (int i = 0; i < options.size(); i++) {
+            CoapOption opt = (CoapOption) options.elementAt(i);
+            if (opt.getOptionNumber() > opt_num) {
+                break;
+            }
+            // else
+            if (opt.getOptionNumber() == opt_num) {
+                if (index + opt.getLength(opt_num) > buf.length) {
+                    return -1;
+                }
+                // else
+                buf[index++] = separator;
+                index += opt.getValueAsOpaque(buf, index);
+            }
+        }
+        return index - off;
+    }
+
     /**
      * Adds an option.
      *
@@ -730,6 +946,7 @@ public class CoapMessage {
      * @return this message
      */
     public synchronized CoapMessage addOption(CoapOption opt) {
+        decodeOptions();
         options.addElement(opt);
         return this;
     }
@@ -741,6 +958,8 @@ public class CoapMessage {
      * @return this message
      */
     public synchronized CoapMessage setPayload(byte[] payload) {
+        decodeOptions();
+        body = null;
         this.payload = payload;
         return this;
     }
@@ -750,8 +969,8 @@ public class CoapMessage {
      *
      * @return the message payload (or null in case no payload is present)
      */
-    public byte[] getPayload() {
-
+    public synchronized byte[] getPayload() {
+        decode();
         if (payload == null || payload.length == 0) {
             return null;
         } else {
@@ -759,21 +978,67 @@ public class CoapMessage {
         }
     }
 
+    /**
+     * Gets the message payload without copying it.
+     *
+     * @return a read-only buffer with the payload between position and limit
+     * (empty if no payload is present); it is valid until the message is
+     * detached or changed
+     */
+    public synchronized ByteBuffer getPayloadBuffer() {
+        decodeOptions();
+        if (body != null) {
+            return ByteBuffer.wrap(body, body_off, body_end - body_off).asReadOnlyBuffer();
+        }
+        // else
+        return (payload == null) ? ByteBuffer.allocate(0) : ByteBuffer.wrap(payload).asReadOnlyBuffer();
+    }
+
+    /**
+     * Gets the payload length.
+     *
+     * @return the number of payload bytes
+     */
+    public synchronized int getPayloadLength() {
+        decodeOptions();
+        if (body != null) {
+            return body_end - body_off;
+        }
+        // else
+        return (payload == null) ? 0 : payload.length;
+    }
+
     /**
      * Gets bytes of this CoAP message.
      *
      * @return the raw bytes of this CoAP message
      */
     public synchronized byte[] getBytes() {
+        byte[] data = new byte[getLength()];
+        getBytes(data, 0);
+        return data;
+    }
+
+    /**
+     * Gets the length of this CoAP message, that is the number of bytes
+     * written by {@link #getBytes(byte[],int)}.
+     *
+     * @return the message length
+     */
+    public synchronized int getLength() {
+        checkReleased();
         int token_len = (token != null) ? token.length : 0;
-        int options_len = getOptionsLength();
-        int len = 4 + token_len + options_len;
+        if (body != null && options_pending) {
+            // options and payload are still encoded
+            return 4 + token_len + body_end - body_off;
+        }
+        // else
+        decode();
+        int len = 4 + token_len + getOptionsLength();
         if (payload != null && payload.length > 0) {
             len += 1 + payload.length;
         }
-        byte[] data = new byte[len];
-        getBytes(data, 0);
-        return data;
+        return len;
     }
 
     /**
@@ -785,6 +1050,11 @@ public class CoapMessage {
      * total length of the CoAP message)
      */
     public synchronized int getBytes(byte[] buf, int off) {
+        checkReleased();
+        boolean encoded = body != null && options_pending;
+        if (!encoded) {
+            decode();
+        }
         int token_len = (token != null) ? token.length : 0;
         int index = off;
         short type_code = type.getCode();
@@ -797,6 +1067,11 @@ public class CoapMessage {
                 buf[index++] = token[i];
             }
         }
+        if (encoded) {
+            System.arraycopy(body, body_off, buf, index, body_end - body_off);
+            return index + body_end - body_off - off;
+        }
+        // else
         if (options != null) {
             int prev_opt_num = 0;
             for (int i = 0; i < options.size(); i++) {
@@ -814,12 +1089,51 @@ public class CoapMessage {
         return index - off;
     }
 
+    /**
+     * Gets the encoded options and payload of this message, that is the bytes
+     * following the token.
+     *
+     * @return the encoded options, payload marker, and payload
+     */
+    public synchronized byte[] getBodyBytes() {
+        byte[] data = getBytes();
+        int body_off = 4 + ((token != null) ? token.length : 0);
+        byte[] body = new byte[data.length - body_off];
+        System.arraycopy(data, body_off, body, 0, body.length);
+        return body;
+    }
+
+    /**
+     * Sets options and payload of this message from their encoding (e.g.
+     * obtained by {@link #getBodyBytes()}), replacing the current ones. The
+     * array is not copied, and it is decoded only if options or payload are
+     * accessed; when sending, it is copied after the header and token as it
+     * is. Hence the same encoding can be shared by many messages, provided
+     * that it is never changed.
+     *
+     * @param body the encoded options, payload marker, and payload
+     * @return this message
+     */
+    public synchronized CoapMessage setBodyBytes(byte[] body) {
+        options.clear();
+        payload = null;
+        this.body = body;
+        body_off = 0;
+        body_end = body.length;
+        options_pending = true;
+        body_owned = true;
+        released = false;
+        checkBody();
+        return this;
+    }
+
     /**
      * Gets the total length of the options.
      *
      * @return total length of the options
      */
     private synchronized int getOptionsLength() {
+        decodeOptions();
         int len = 0;
         if (options != null) {
             int prev_opt_num = 0;
@@ -856,6 +1170,7 @@ public class CoapMessage {
      * @return a string of all message options
      */
     protected synchronized String getOptionsAsString() {
+        decodeOptions();
         StringBuffer sb = new StringBuffer();
         for (int i = 0; i < options.size(); i++) {
             if (i > 0) {
@@ -872,6 +1187,7 @@ public class CoapMessage {
      * @return a string of all message options
      */
     protected synchronized String getPayloadAsString() {
+        decode();
         //return payload!=null? "0x"+ByteUtils.asHex(payload) : null;
         if (payload == null) {
             return null;
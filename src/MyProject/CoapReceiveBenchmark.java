@@ -0,0 +1,118 @@
+package MyProject;
+
+import it.unipr.netsec.mjcoap.coap.analyzer.CoapProtocolAnalyzer;
+import it.unipr.netsec.mjcoap.coap.message.CoapMessageFactory;
+import it.unipr.netsec.mjcoap.coap.message.CoapRequest;
+import it.unipr.netsec.mjcoap.coap.message.CoapRequestMethod;
+import it.unipr.netsec.mjcoap.coap.provider.CoapId;
+import it.unipr.netsec.mjcoap.coap.provider.CoapProvider;
+import it.unipr.netsec.mjcoap.coap.provider.CoapProviderListener;
+import it.unipr.netsec.mjcoap.coap.provider.CoapURI;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import org.zoolu.util.Logger;
+import org.zoolu.util.LoggerLevel;
+import org.zoolu.util.LoggerWriter;
+import org.zoolu.util.SystemUtils;
+
+/**
+ * Cost of the CoAP receive path (decoding a datagram and dispatching it to
+ * its listener in CoapProvider) with debug and trace logging disabled:
+ *
+ * - no logger installed,
+ * - a logger recording only INFO messages and above,
+ * - the same logger, with the debug and trace messages composed before the
+ *   level is checked, as the provider did before the logging facade
+ *   (msg.toString() and CoapProtocolAnalyzer on every packet),
+ * - a logger recording everything (TRACE), written to a null stream, as the
+ *   upper bound.
+ *
+ * Usage: CoapReceiveBenchmark [iterations]
+ */
+public class CoapReceiveBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+        int warmup = iterations / 2;
+        Logger nullInfo = new LoggerWriter(Benchmark.NULL_OUT, LoggerLevel.INFO);
+        Logger nullTrace = new LoggerWriter(Benchmark.NULL_OUT, LoggerLevel.TRACE);
+
+        Benchmark.printHeader(System.out);
+        Benchmark.run(new Receive("no logger", null, false), warmup, iterations, System.out);
+        Benchmark.run(new Receive("logger INFO", nullInfo, false), warmup, iterations, System.out);
+        Benchmark.run(new Receive("logger INFO, eager messages", nullInfo, true), warmup, iterations, System.out);
+        Benchmark.run(new Receive("logger TRACE", nullTrace, false), warmup / 10, iterations / 10, System.out);
+        SystemUtils.setDefaultLogger(null);
+    }
+
+    /**
+     * Provider whose receive path can be driven without a socket.
+     */
+    static class Provider extends CoapProvider {
+
+        Provider() throws java.net.SocketException {
+            super(new DatagramSocket(0));
+        }
+
+        void receive(byte[] data, InetSocketAddress remote) {
+            CoapMessage msg = CoapMessage.wrap(data, 0, data.length);
+            msg.setRemoteSoAddress(remote);
+            try {
+                processReceivedMessage(msg);
+            } finally {
+                msg.release();
+            }
+        }
+    }
+
+    static class Receive extends Benchmark {
+
+        private final Logger logger;
+        private final boolean eager;
+        private final InetSocketAddress remote = new InetSocketAddress("127.0.0.1", 5683);
+        private Provider provider;
+        private byte[] data;
+        private int received;
+
+        Receive(String name, Logger logger, boolean eager) {
+            super("coap receive", name);
+            this.logger = logger;
+            this.eager = eager;
+        }
+
+        @Override
+        protected void setUp() throws Exception {
+            SystemUtils.setDefaultLogger(logger);
+            provider = new Provider();
+            provider.addListener(CoapId.REQUEST, new CoapProviderListener() {
+                @Override
+                public void onReceivedMessage(CoapProvider provider, CoapMessage msg) {
+                    received += msg.getPayloadLength() + 1;
+                }
+            });
+            // NON request, so that nothing is sent back
+            CoapRequest req = CoapMessageFactory.createNONRequest(CoapRequestMethod.GET,
+                    new CoapURI("coap://127.0.0.1/sensors/temperature?unit=C"));
+            data = req.getBytes();
+        }
+
+        @Override
+        protected int operation(int i) throws Exception {
+            if (eager) {
+                // what the provider composed for every packet before checking the level
+                CoapMessage msg = CoapMessage.wrap(data, 0, data.length);
+                String str = "processReceivedMessage(): " + msg.toString()
+                        + "processReceivedMessage(): " + CoapProtocolAnalyzer.analyze(msg).toString(2);
+                SystemUtils.log(LoggerLevel.DEBUG, null, str);
+            }
+            provider.receive(data, remote);
+            return received;
+        }
+
+        @Override
+        protected void tearDown() throws Exception {
+            provider.halt();
+            SystemUtils.setDefaultLogger(null);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package MyProject;
+
+/**
+ * Thread-safe decision cache for CoAP front-ends serving requests from several
+ * threads. The key space is split into independent stripes, each one a
+ * {@link DecisionCache} with its own eviction policy and lock, so threads only
+ * contend when their (src, dst) pairs fall into the same stripe.
+ *
+ * Unlike DecisionCache, lookups return the decision itself rather than a slot
+ * handle, since a handle would not be stable once the stripe lock is released.
+ */
+public class ConcurrentDecisionCache {
+
+    /**
+     * Smallest number of entries of a stripe, see {@link #stripeCount}.
+     */
+    public static final int MIN_STRIPE_CAPACITY = 64;
+
+    private final DecisionCache[] stripes;
+    private final int stripeShift;
+    private final int capacity;
+
+    public ConcurrentDecisionCache(int capacity, String evictionPolicy, int stripeCount) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        int n = stripeCount(capacity, stripeCount);
+        stripes = new DecisionCache[n];
+        for (int i = 0; i < n; i++) {
+            int stripeCapacity = capacity / n + ((i < capacity % n) ? 1 : 0);
+            stripes[i] = new DecisionCache(stripeCapacity, evictionPolicy);
+        }
+        stripeShift = 32 - Integer.numberOfTrailingZeros(n);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Number of stripes actually used for a cache: a power of two, at most
+     * stripeCount, leaving each stripe at least MIN_STRIPE_CAPACITY entries.
+     * Every stripe evicts on its own, so smaller stripes would change the hit
+     * ratio of the eviction policy instead of only spreading the locks.
+     */
+    public static int stripeCount(int capacity, int stripeCount) {
+        return Integer.highestOneBit(Math.max(1, Math.min(stripeCount, capacity / MIN_STRIPE_CAPACITY)));
+    }
+
+    private DecisionCache stripe(int src, int dst) {
+        if (stripes.length == 1) {
+            return stripes[0];
+        }
+        // High hash bits pick the stripe, low bits the bucket inside it
+        return stripes[DecisionCache.hash(DecisionCache.key(src, dst)) >>> stripeShift];
+    }
+
+    /**
+     * @return {@link DecisionCache#PERMIT} or {@link DecisionCache#DENY} for a
+     * valid entry (see {@link DecisionCache#getValid}), otherwise
+     * {@link DecisionCache#UNKNOWN}
+     */
+    public byte getValidDecision(int src, int dst, double now, double ttl, int policyVersion) {
+        DecisionCache cache = stripe(src, dst);
+        synchronized (cache) {
+            int slot = cache.getValid(src, dst, now, ttl, policyVersion);
+            return (slot == DecisionCache.NOT_FOUND) ? DecisionCache.UNKNOWN : cache.getDecision(slot);
+        }
+    }
+
+    /**
+     * @return the obligations of a valid entry, or null if there is none
+     */
+    public String[] getValidObligations(int src, int dst, double now, double ttl, int policyVersion) {
+        DecisionCache cache = stripe(src, dst);
+        synchronized (cache) {
+            int slot = cache.getValid(src, dst, now, ttl, policyVersion);
+            return (slot == DecisionCache.NOT_FOUND) ? null : cache.getObligations(slot);
+        }
+    }
+
+    public void put(int src, int dst, double timestamp, byte decision, String[] obligations, int policyVersion) {
+        DecisionCache cache = stripe(src, dst);
+        synchronized (cache) {
+            cache.put(src, dst, timestamp, decision, obligations, policyVersion);
+        }
+    }
+
+    public String getEvictionPolicyName() {
+        return stripes[0].getEvictionPolicyName();
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int size() {
+        int size = 0;
+        for (DecisionCache cache : stripes) {
+            synchronized (cache) {
+                size += cache.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        long hits = 0;
+        for (DecisionCache cache : stripes) {
+            synchronized (cache) {
+                hits += cache.getHits();
+            }
+        }
+        return hits;
+    }
+
+    public long getMisses() {
+        long misses = 0;
+        for (DecisionCache cache : stripes) {
+            synchronized (cache) {
+                misses += cache.getMisses();
+            }
+        }
+        return misses;
+    }
+
+    public long getEvictions() {
+        long evictions = 0;
+        for (DecisionCache cache : stripes) {
+            synchronized (cache) {
+                evictions += cache.getEvictions();
+            }
+        }
+        return evictions;
+    }
+
+    public void resetStatistics() {
+        for (DecisionCache cache : stripes) {
+            synchronized (cache) {
+                cache.resetStatistics();
+            }
+        }
+    }
+
+    public void clear() {
+        for (DecisionCache cache : stripes) {
+            synchronized (cache) {
+                cache.clear();
+            }
+        }
+    }
+}
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.cloudbus.cloudsim.Vm;
 
 /**
@@ -46,16 +47,19 @@ public class Config {
     static List<HostSpec> hosts = new ArrayList<HostSpec>();
     static List<SwitchSpec> switches = new ArrayList<SwitchSpec>();
     static List<LinkSpec> links = new ArrayList<LinkSpec>();
-    static LRUcache TEMP=new LRUcache(100);
-    static HashMap<HashMap<Integer, Integer>, Double> Last_Request_Time
-            = new HashMap<>(); // VM id , Last_Request_Time  
-    static String sub_att="",obj_att="";//Client attribute and server attribute that are randomly checked for access policy
-    static int vmID, Source, Age, Sensivity,securityLabel;  //vmID,Client att,client att,server att
-    static int ID, DOMAIN;
-    static String URI = "", IP = "",Role="",Action="",Specialty="";//server att,server att,client att,action, client att
+    public static String Cache_Eviction = "LRU"; // LRU, LFU, ARC, W-TinyLFU : eviction policy of TEMP
+    static int Cache_Capacity = 100;
+    static int Cache_Stripes = 16; // maximum lock stripes of the decision caches, each keeps at least ConcurrentDecisionCache.MIN_STRIPE_CAPACITY entries
+    static ConcurrentDecisionCache TEMP = new ConcurrentDecisionCache(Cache_Capacity, Cache_Eviction, Cache_Stripes); // (src, dst) -> last ABAC decision, valid for Time_Flag
+    static PolicyEngine ABAC_Engine = new PolicyEngine("ABAC_Policy_Set.csv"); // compiled ABAC policy set, loaded once
+    static boolean ABAC_Parallel = false; // split large ABAC candidate lists across the fork/join common pool
+    static ConcurrentDecisionCache Last_Request_Time
+            = new ConcurrentDecisionCache(CoapClient_Number * CoapServer_Number, "LRU", Cache_Stripes); // Base method: (src, dst) -> last XACML decision, sized for every pair
+    static volatile AttributeRepository Attributes = null; // subject/object attributes of Network_access.xls, loaded once (double-checked in AccessController)
+    static String Action="";//action
     static int Packet_Counter = 0;
-    static int AC = 0;
-    static int No_AC = 0;
+    static AtomicInteger AC = new AtomicInteger(); // access checks evaluated
+    static AtomicInteger No_AC = new AtomicInteger(); // access checks answered by the decision cache
     public static double FinishTime = 0;
     public static double startTime;
     public static double duration;
@@ -0,0 +1,300 @@
+package MyProject;
+
+import java.util.Arrays;
+
+/**
+ * Bounded cache of access decisions keyed by the (src, dst) VM pair.
+ * Each entry keeps the full outcome of an access check (permit/deny, the
+ * obligations attached to it and the version of the policy set it was taken
+ * from) so that a fresh entry answers the request without re-evaluation,
+ * denies included.
+ *
+ * The pair is packed into a single long (src &lt;&lt; 32 | dst) and stored in an
+ * open-addressing table of primitives, so neither lookups nor updates box,
+ * allocate or hash a collection. Entries live in fixed slots holding the key,
+ * the time of the decision and the decision itself. Which slot is recycled
+ * when the cache is full is delegated to a {@link DecisionCacheEvictionPolicy}
+ * (LRU by default). Obligation sets are shared, immutable arrays owned by the
+ * compiled policies; they are informational, as nothing in the simulation
+ * enforces them.
+ *
+ * Hits, misses and evictions are counted for the run statistics.
+ *
+ * Lookups return a slot handle (or {@link #NOT_FOUND}) whose fields are read
+ * with {@link #getTimestamp(int)} and {@link #getDecision(int)}. A handle is
+ * only valid until the next {@link #put}. Not thread-safe.
+ */
+public class DecisionCache {
+
+    public static final int NOT_FOUND = -1;
+
+    // Decision values stored inline
+    public static final byte UNKNOWN = 0;
+    public static final byte PERMIT = 1;
+    public static final byte DENY = 2;
+
+    public static final String[] NO_OBLIGATIONS = new String[0];
+
+    private final int capacity;
+    private int size = 0;
+
+    // Entry slots
+    private final long[] keys;
+    private final double[] timestamps;
+    private final byte[] decisions;
+    private final String[][] obligations;
+    private final int[] policyVersions;
+    private final DecisionCacheEvictionPolicy evictionPolicy;
+
+    // Statistics
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    // Open-addressing index: bucket -> entry slot + 1 (0 = empty bucket)
+    private final int[] table;
+    private final int mask;
+
+    public DecisionCache(int capacity) {
+        this(capacity, new DecisionCacheEvictionPolicyLRU(capacity));
+    }
+
+    public DecisionCache(int capacity, String evictionPolicy) {
+        this(capacity, DecisionCacheEvictionPolicy.create(evictionPolicy, capacity));
+    }
+
+    public DecisionCache(int capacity, DecisionCacheEvictionPolicy evictionPolicy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        keys = new long[capacity];
+        timestamps = new double[capacity];
+        decisions = new byte[capacity];
+        obligations = new String[capacity][];
+        policyVersions = new int[capacity];
+        this.evictionPolicy = evictionPolicy;
+
+        // Keep the load factor at or below 0.5
+        int buckets = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        table = new int[Math.max(buckets, 2)];
+        mask = table.length - 1;
+    }
+
+    public static long key(int src, int dst) {
+        return ((long) src << 32) | (dst & 0xFFFFFFFFL);
+    }
+
+    public static int getSrc(long key) {
+        return (int) (key >>> 32);
+    }
+
+    public static int getDst(long key) {
+        return (int) key;
+    }
+
+    public static byte toDecision(boolean granted) {
+        return granted ? PERMIT : DENY;
+    }
+
+    /**
+     * Looks up the pair and reports the access to the eviction policy.
+     *
+     * @return the slot of the entry, or {@link #NOT_FOUND}
+     */
+    public int get(int src, int dst) {
+        int slot = find(key(src, dst));
+        if (slot != NOT_FOUND) {
+            hits++;
+            evictionPolicy.onAccess(slot);
+        } else {
+            misses++;
+        }
+        return slot;
+    }
+
+    /**
+     * Looks up a decision that can be reused as is: it must have been taken
+     * at most ttl ago, from the given policy version, and be a permit or a
+     * deny. A valid entry is reported to the eviction policy as accessed.
+     *
+     * @return the slot of the entry, or {@link #NOT_FOUND} if absent or stale
+     */
+    public int getValid(int src, int dst, double now, double ttl, int policyVersion) {
+        int slot = find(key(src, dst));
+        if (slot == NOT_FOUND
+                || decisions[slot] == UNKNOWN
+                || policyVersions[slot] != policyVersion
+                || now - timestamps[slot] > ttl) {
+            misses++;
+            return NOT_FOUND;
+        }
+        hits++;
+        evictionPolicy.onAccess(slot);
+        return slot;
+    }
+
+    public boolean contains(int src, int dst) {
+        return find(key(src, dst)) != NOT_FOUND;
+    }
+
+    public double getTimestamp(int slot) {
+        return timestamps[slot];
+    }
+
+    public byte getDecision(int slot) {
+        return decisions[slot];
+    }
+
+    public boolean isPermitted(int slot) {
+        return decisions[slot] == PERMIT;
+    }
+
+    public String[] getObligations(int slot) {
+        return obligations[slot];
+    }
+
+    public int getPolicyVersion(int slot) {
+        return policyVersions[slot];
+    }
+
+    public long getKey(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * Inserts or updates the pair, evicting an entry chosen by the eviction
+     * policy when the cache is full.
+     *
+     * @return the slot of the entry
+     */
+    public int put(int src, int dst, double timestamp, byte decision) {
+        return put(src, dst, timestamp, decision, NO_OBLIGATIONS, 0);
+    }
+
+    /**
+     * Inserts or updates the pair with a complete decision, evicting an entry
+     * chosen by the eviction policy when the cache is full.
+     *
+     * @return the slot of the entry
+     */
+    public int put(int src, int dst, double timestamp, byte decision, String[] obligations, int policyVersion) {
+        long key = key(src, dst);
+        int slot = find(key);
+        if (slot == NOT_FOUND) {
+            if (size < capacity) {
+                slot = size++;
+            } else {
+                slot = evictionPolicy.selectVictim(key);
+                removeFromTable(keys[slot]);
+                evictions++;
+            }
+            keys[slot] = key;
+            insertIntoTable(key, slot);
+            evictionPolicy.onInsert(slot, key);
+        } else {
+            evictionPolicy.onAccess(slot);
+        }
+        timestamps[slot] = timestamp;
+        decisions[slot] = decision;
+        this.obligations[slot] = (obligations == null) ? NO_OBLIGATIONS : obligations;
+        policyVersions[slot] = policyVersion;
+        return slot;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public String getEvictionPolicyName() {
+        return evictionPolicy.getName();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return (lookups == 0) ? 0 : (double) hits / lookups;
+    }
+
+    public void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0);
+        Arrays.fill(obligations, null);
+        size = 0;
+        evictionPolicy.clear();
+    }
+
+    //------------------------------------------------------------- hash table
+
+    static int hash(long key) {
+        // MurmurHash3 fmix64
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private int find(long key) {
+        int i = hash(key) & mask;
+        while (true) {
+            int e = table[i];
+            if (e == 0) {
+                return NOT_FOUND;
+            }
+            if (keys[e - 1] == key) {
+                return e - 1;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private void insertIntoTable(long key, int slot) {
+        int i = hash(key) & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = slot + 1;
+    }
+
+    // Linear-probing removal with backward shift, so no tombstones are needed
+    private void removeFromTable(long key) {
+        int i = hash(key) & mask;
+        while (keys[table[i] - 1] != key) {
+            i = (i + 1) & mask;
+        }
+        int hole = i;
+        i = (i + 1) & mask;
+        while (table[i] != 0) {
+            int home = hash(keys[table[i] - 1]) & mask;
+            // Move the entry back if the hole lies on its probe path
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                table[hole] = table[i];
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+        table[hole] = 0;
+    }
+}
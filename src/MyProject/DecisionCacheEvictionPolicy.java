@@ -0,0 +1,46 @@
+package MyProject;
+
+/**
+ * Eviction policy of a {@link DecisionCache}. The cache owns a fixed number of
+ * entry slots; the policy only tracks slot numbers (and, when it needs to,
+ * the packed (src, dst) keys) and picks the slot to recycle when the cache is
+ * full.
+ *
+ * Calls made by the cache:
+ * - onInsert() when a key is stored in a slot,
+ * - onAccess() when a resident entry is read or updated,
+ * - selectVictim() when a new key arrives and every slot is used. The
+ *   returned slot must already be forgotten by the policy; it is then reused
+ *   for the incoming key through onInsert().
+ */
+public interface DecisionCacheEvictionPolicy {
+
+    public String getName();
+
+    public void onInsert(int slot, long key);
+
+    public void onAccess(int slot);
+
+    public int selectVictim(long incomingKey);
+
+    public void clear();
+
+    /**
+     * Creates the policy selected by name (see Config.Cache_Eviction):
+     * LRU, LFU, ARC or W-TinyLFU.
+     */
+    public static DecisionCacheEvictionPolicy create(String name, int capacity) {
+        switch (name.toUpperCase().replace("-", "").replace("_", "")) {
+            case "LRU":
+                return new DecisionCacheEvictionPolicyLRU(capacity);
+            case "LFU":
+                return new DecisionCacheEvictionPolicyLFU(capacity);
+            case "ARC":
+                return new DecisionCacheEvictionPolicyARC(capacity);
+            case "WTINYLFU":
+                return new DecisionCacheEvictionPolicyWTinyLFU(capacity);
+            default:
+                throw new IllegalArgumentException("Unknown decision cache eviction policy: " + name);
+        }
+    }
+}
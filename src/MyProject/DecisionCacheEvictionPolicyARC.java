@@ -0,0 +1,219 @@
+package MyProject;
+
+import java.util.Arrays;
+
+/**
+ * Adaptive Replacement Cache (Megiddo and Modha). Resident entries are split
+ * between T1 (seen once recently) and T2 (seen at least twice); the keys of
+ * recently evicted entries are remembered in the ghost lists B1 and B2. A
+ * miss that hits a ghost list shifts the target size p of T1, so the policy
+ * adapts between recency- and frequency-dominated traffic, e.g. sensors
+ * polling constantly versus long scans over many (src, dst) pairs.
+ *
+ * Resident lists are intrusive over the cache slots. The ghost lists hold
+ * keys only, in a fixed pool of ghost nodes linked the same way and indexed
+ * by an open-addressing table of primitives, so misses do not box or
+ * allocate either; they are touched on misses only.
+ */
+public class DecisionCacheEvictionPolicyARC implements DecisionCacheEvictionPolicy {
+
+    private static final byte T1 = 1;
+    private static final byte T2 = 2;
+
+    private final int capacity;
+    private final long[] keys;
+    private final byte[] region;
+    private final SlotList t1;
+    private final SlotList t2;
+    private int p = 0; // target size of T1
+
+    // Ghost nodes: key and list (T1 for B1, T2 for B2) of each node in use
+    private final long[] ghostKeys;
+    private final byte[] ghostRegion;
+    private final SlotList b1;
+    private final SlotList b2;
+    private final int[] freeNodes;
+    private int freeCount;
+
+    // Open-addressing index of the ghost keys: bucket -> node + 1 (0 = empty bucket)
+    private final int[] ghostTable;
+    private final int ghostMask;
+
+    // Ghost lookup already done by selectVictim() for the incoming key
+    private boolean pending = false;
+    private long pendingKey;
+    private byte pendingGhost;
+
+    public DecisionCacheEvictionPolicyARC(int capacity) {
+        this.capacity = capacity;
+        keys = new long[capacity];
+        region = new byte[capacity];
+        int[] prev = new int[capacity];
+        int[] next = new int[capacity];
+        t1 = new SlotList(prev, next);
+        t2 = new SlotList(prev, next);
+
+        // |B1| + |B2| <= c, plus the victim added before the next insert trims the lists
+        int nodes = 2 * capacity + 2;
+        ghostKeys = new long[nodes];
+        ghostRegion = new byte[nodes];
+        int[] ghostPrev = new int[nodes];
+        int[] ghostNext = new int[nodes];
+        b1 = new SlotList(ghostPrev, ghostNext);
+        b2 = new SlotList(ghostPrev, ghostNext);
+        freeNodes = new int[nodes];
+        int buckets = Integer.highestOneBit(nodes * 2 - 1) << 1;
+        ghostTable = new int[buckets];
+        ghostMask = buckets - 1;
+        resetGhosts();
+    }
+
+    @Override
+    public String getName() {
+        return "ARC";
+    }
+
+    @Override
+    public void onInsert(int slot, long key) {
+        byte ghost;
+        if (pending && pendingKey == key) {
+            ghost = pendingGhost;
+        } else {
+            ghost = ghostOf(key);
+            adapt(ghost);
+        }
+        pending = false;
+
+        keys[slot] = key;
+        if (ghost == 0) {
+            region[slot] = T1;
+            t1.addFirst(slot);
+        } else {
+            removeGhost(findGhost(key));
+            region[slot] = T2;
+            t2.addFirst(slot);
+        }
+
+        // Keep |T1| + |B1| <= c and |T1| + |T2| + |B1| + |B2| <= 2c
+        while (t1.size() + b1.size() > capacity && !b1.isEmpty()) {
+            removeGhost(b1.last());
+        }
+        while (t1.size() + t2.size() + b1.size() + b2.size() > 2 * capacity && !b2.isEmpty()) {
+            removeGhost(b2.last());
+        }
+    }
+
+    @Override
+    public void onAccess(int slot) {
+        if (region[slot] == T1) {
+            t1.remove(slot);
+            region[slot] = T2;
+            t2.addFirst(slot);
+        } else {
+            t2.moveToFirst(slot);
+        }
+    }
+
+    @Override
+    public int selectVictim(long incomingKey) {
+        byte ghost = ghostOf(incomingKey);
+        adapt(ghost);
+        pending = true;
+        pendingKey = incomingKey;
+        pendingGhost = ghost;
+
+        int victim;
+        if (t2.isEmpty() || (!t1.isEmpty() && (t1.size() > p || (ghost == T2 && t1.size() == p)))) {
+            victim = t1.removeLast();
+            addGhost(b1, T1, keys[victim]);
+        } else {
+            victim = t2.removeLast();
+            addGhost(b2, T2, keys[victim]);
+        }
+        return victim;
+    }
+
+    @Override
+    public void clear() {
+        t1.clear();
+        t2.clear();
+        resetGhosts();
+        p = 0;
+        pending = false;
+    }
+
+    private byte ghostOf(long key) {
+        int node = findGhost(key);
+        return (node == SlotList.NIL) ? 0 : ghostRegion[node];
+    }
+
+    private void adapt(byte ghost) {
+        if (ghost == T1) {
+            p = Math.min(capacity, p + Math.max(1, b2.size() / b1.size()));
+        } else if (ghost == T2) {
+            p = Math.max(0, p - Math.max(1, b1.size() / b2.size()));
+        }
+    }
+
+    //------------------------------------------------------------- ghost lists
+
+    private void resetGhosts() {
+        b1.clear();
+        b2.clear();
+        Arrays.fill(ghostTable, 0);
+        freeCount = freeNodes.length;
+        for (int i = 0; i < freeCount; i++) {
+            freeNodes[i] = freeCount - 1 - i;
+        }
+    }
+
+    private void addGhost(SlotList list, byte ghost, long key) {
+        int node = freeNodes[--freeCount];
+        ghostKeys[node] = key;
+        ghostRegion[node] = ghost;
+        list.addFirst(node);
+
+        int i = DecisionCache.hash(key) & ghostMask;
+        while (ghostTable[i] != 0) {
+            i = (i + 1) & ghostMask;
+        }
+        ghostTable[i] = node + 1;
+    }
+
+    private void removeGhost(int node) {
+        (ghostRegion[node] == T1 ? b1 : b2).remove(node);
+        freeNodes[freeCount++] = node;
+
+        // Linear-probing removal with backward shift, as in DecisionCache
+        int i = DecisionCache.hash(ghostKeys[node]) & ghostMask;
+        while (ghostTable[i] != node + 1) {
+            i = (i + 1) & ghostMask;
+        }
+        int hole = i;
+        i = (i + 1) & ghostMask;
+        while (ghostTable[i] != 0) {
+            int home = DecisionCache.hash(ghostKeys[ghostTable[i] - 1]) & ghostMask;
+            if (((i - home) & ghostMask) >= ((i - hole) & ghostMask)) {
+                ghostTable[hole] = ghostTable[i];
+                hole = i;
+            }
+            i = (i + 1) & ghostMask;
+        }
+        ghostTable[hole] = 0;
+    }
+
+    // Node of a ghost key, or SlotList.NIL
+    private int findGhost(long key) {
+        int i = DecisionCache.hash(key) & ghostMask;
+        while (true) {
+            int e = ghostTable[i];
+            if (e == 0) {
+                return SlotList.NIL;
+            }
+            if (ghostKeys[e - 1] == key) {
+                return e - 1;
+            }
+            i = (i + 1) & ghostMask;
+        }
+    }
+}
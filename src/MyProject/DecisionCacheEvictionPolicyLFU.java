@@ -0,0 +1,104 @@
+package MyProject;
+
+/**
+ * Least frequently used: evicts the entry with the fewest accesses since it
+ * was inserted, the least recently used one among equals. Slots are kept in
+ * an indexed binary min-heap ordered by (frequency, last access).
+ */
+public class DecisionCacheEvictionPolicyLFU implements DecisionCacheEvictionPolicy {
+
+    private final int[] heap;      // heap position -> slot
+    private final int[] position;  // slot -> heap position
+    private final int[] frequency;
+    private final long[] lastAccess;
+    private int size = 0;
+    private long clock = 0;
+
+    public DecisionCacheEvictionPolicyLFU(int capacity) {
+        heap = new int[capacity];
+        position = new int[capacity];
+        frequency = new int[capacity];
+        lastAccess = new long[capacity];
+    }
+
+    @Override
+    public String getName() {
+        return "LFU";
+    }
+
+    @Override
+    public void onInsert(int slot, long key) {
+        frequency[slot] = 1;
+        lastAccess[slot] = ++clock;
+        heap[size] = slot;
+        position[slot] = size;
+        siftUp(size++);
+    }
+
+    @Override
+    public void onAccess(int slot) {
+        if (frequency[slot] < Integer.MAX_VALUE) {
+            frequency[slot]++;
+        }
+        lastAccess[slot] = ++clock;
+        siftDown(position[slot]);
+    }
+
+    @Override
+    public int selectVictim(long incomingKey) {
+        int victim = heap[0];
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return victim;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+    }
+
+    private boolean less(int a, int b) {
+        if (frequency[a] != frequency[b]) {
+            return frequency[a] < frequency[b];
+        }
+        return lastAccess[a] < lastAccess[b];
+    }
+
+    private void siftUp(int i) {
+        int slot = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(slot, heap[parent])) {
+                break;
+            }
+            heap[i] = heap[parent];
+            position[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = slot;
+        position[slot] = i;
+    }
+
+    private void siftDown(int i) {
+        int slot = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && less(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!less(heap[child], slot)) {
+                break;
+            }
+            heap[i] = heap[child];
+            position[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = slot;
+        position[slot] = i;
+    }
+}
@@ -0,0 +1,39 @@
+package MyProject;
+
+/**
+ * Least recently used: evicts the entry that was read or written the longest
+ * time ago.
+ */
+public class DecisionCacheEvictionPolicyLRU implements DecisionCacheEvictionPolicy {
+
+    private final SlotList list;
+
+    public DecisionCacheEvictionPolicyLRU(int capacity) {
+        list = new SlotList(new int[capacity], new int[capacity]);
+    }
+
+    @Override
+    public String getName() {
+        return "LRU";
+    }
+
+    @Override
+    public void onInsert(int slot, long key) {
+        list.addFirst(slot);
+    }
+
+    @Override
+    public void onAccess(int slot) {
+        list.moveToFirst(slot);
+    }
+
+    @Override
+    public int selectVictim(long incomingKey) {
+        return list.removeLast();
+    }
+
+    @Override
+    public void clear() {
+        list.clear();
+    }
+}
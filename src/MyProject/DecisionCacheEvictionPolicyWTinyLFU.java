@@ -0,0 +1,206 @@
+package MyProject;
+
+import java.util.Arrays;
+
+/**
+ * Window TinyLFU (Einziger, Friedman and Manes). New entries enter a small
+ * LRU window (1% of the capacity); entries leaving the window compete with
+ * the eviction candidate of the main segmented LRU (probation + protected,
+ * 80% protected) and are only admitted if they have been requested more
+ * often. Frequencies are estimated with a 4-way count-min sketch of small
+ * counters that are halved periodically, so the history ages out.
+ *
+ * This keeps scans over many one-off (src, dst) pairs from flushing the
+ * decisions of constantly polling sensors.
+ */
+public class DecisionCacheEvictionPolicyWTinyLFU implements DecisionCacheEvictionPolicy {
+
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+
+    private final int windowCapacity;
+    private final int protectedCapacity;
+    private final long[] keys;
+    private final byte[] region;
+    private final SlotList window;
+    private final SlotList probation;
+    private final SlotList protectedList;
+    private final FrequencySketch sketch;
+
+    // Incoming key already counted by selectVictim()
+    private boolean pending = false;
+    private long pendingKey;
+
+    public DecisionCacheEvictionPolicyWTinyLFU(int capacity) {
+        windowCapacity = Math.max(1, capacity / 100);
+        int mainCapacity = capacity - windowCapacity;
+        protectedCapacity = (int) (mainCapacity * 0.8);
+
+        keys = new long[capacity];
+        region = new byte[capacity];
+        int[] prev = new int[capacity];
+        int[] next = new int[capacity];
+        window = new SlotList(prev, next);
+        probation = new SlotList(prev, next);
+        protectedList = new SlotList(prev, next);
+        sketch = new FrequencySketch(capacity);
+    }
+
+    @Override
+    public String getName() {
+        return "W-TinyLFU";
+    }
+
+    @Override
+    public void onInsert(int slot, long key) {
+        if (!(pending && pendingKey == key)) {
+            sketch.increment(key);
+        }
+        pending = false;
+
+        keys[slot] = key;
+        region[slot] = WINDOW;
+        window.addFirst(slot);
+
+        // While the cache is filling up, window overflow goes straight to the main space
+        if (window.size() > windowCapacity) {
+            int candidate = window.removeLast();
+            region[candidate] = PROBATION;
+            probation.addFirst(candidate);
+        }
+    }
+
+    @Override
+    public void onAccess(int slot) {
+        sketch.increment(keys[slot]);
+        switch (region[slot]) {
+            case WINDOW:
+                window.moveToFirst(slot);
+                break;
+            case PROBATION:
+                probation.remove(slot);
+                region[slot] = PROTECTED;
+                protectedList.addFirst(slot);
+                if (protectedList.size() > protectedCapacity) {
+                    int demoted = protectedList.removeLast();
+                    region[demoted] = PROBATION;
+                    probation.addFirst(demoted);
+                }
+                break;
+            default:
+                protectedList.moveToFirst(slot);
+        }
+    }
+
+    @Override
+    public int selectVictim(long incomingKey) {
+        sketch.increment(incomingKey);
+        pending = true;
+        pendingKey = incomingKey;
+
+        int victim = !probation.isEmpty() ? probation.last() : protectedList.last();
+        if (window.size() < windowCapacity || window.isEmpty()) {
+            // Window has room for the incoming key: evict from the main space
+            removeSlot(victim);
+            return victim;
+        }
+
+        int candidate = window.last();
+        if (victim == SlotList.NIL) {
+            window.remove(candidate);
+            return candidate;
+        }
+
+        // TinyLFU admission: the window evictee replaces the main victim only if more popular
+        if (sketch.frequency(keys[candidate]) > sketch.frequency(keys[victim])) {
+            removeSlot(victim);
+            window.remove(candidate);
+            region[candidate] = PROBATION;
+            probation.addFirst(candidate);
+            return victim;
+        }
+        window.remove(candidate);
+        return candidate;
+    }
+
+    @Override
+    public void clear() {
+        window.clear();
+        probation.clear();
+        protectedList.clear();
+        sketch.clear();
+        pending = false;
+    }
+
+    private void removeSlot(int slot) {
+        switch (region[slot]) {
+            case WINDOW:
+                window.remove(slot);
+                break;
+            case PROBATION:
+                probation.remove(slot);
+                break;
+            default:
+                protectedList.remove(slot);
+        }
+    }
+
+    /**
+     * Count-min sketch with 4 rows of counters saturating at 15. Once the
+     * number of increments reaches 10x the cache capacity all counters are
+     * halved.
+     */
+    static final class FrequencySketch {
+        private static final int MAX_COUNT = 15;
+        private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+        };
+
+        private final byte[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions = 0;
+
+        FrequencySketch(int capacity) {
+            int width = Integer.highestOneBit(Math.max(capacity, 4) - 1) << 1;
+            table = new byte[width * SEEDS.length];
+            mask = width - 1;
+            sampleSize = 10 * Math.max(capacity, 1);
+        }
+
+        private int index(long key, int row) {
+            long h = (key + SEEDS[row]) * SEEDS[(row + 1) % SEEDS.length];
+            h ^= h >>> 32;
+            return row * (mask + 1) + ((int) h & mask);
+        }
+
+        void increment(long key) {
+            for (int row = 0; row < SEEDS.length; row++) {
+                int i = index(key, row);
+                if (table[i] < MAX_COUNT) {
+                    table[i]++;
+                }
+            }
+            if (++additions >= sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] >>= 1;
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(long key) {
+            int min = MAX_COUNT;
+            for (int row = 0; row < SEEDS.length; row++) {
+                min = Math.min(min, table[index(key, row)]);
+            }
+            return min;
+        }
+
+        void clear() {
+            Arrays.fill(table, (byte) 0);
+            additions = 0;
+        }
+    }
+}
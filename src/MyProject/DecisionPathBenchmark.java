@@ -0,0 +1,399 @@
+package MyProject;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.VmAllocationPolicy;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.sdn.HostFactorySimple;
+import org.cloudbus.cloudsim.sdn.SDNBroker;
+import org.cloudbus.cloudsim.sdn.parsers.PhysicalTopologyParser;
+import org.cloudbus.cloudsim.sdn.physicalcomponents.SDNDatacenter;
+import org.cloudbus.cloudsim.sdn.policies.selectlink.LinkSelectionPolicyDestinationAddress;
+import org.cloudbus.cloudsim.sdn.policies.vmallocation.VmAllocationPolicyCombinedLeastFullFirst;
+
+/**
+ * Benchmarks of the access decision path, so that a regression in any of its
+ * steps shows up as a number instead of disappearing in Config.duration:
+ *
+ * - ABAC_Policy.evaluateAccess (list scan) against the compiled PolicyEngine,
+ * - MyXXACML.check,
+ * - LRUcache get/put against DecisionCache and ConcurrentDecisionCache,
+ * - ReadWriteExcelFile.FindInExcel against the ExcelAttributeRepository,
+ * - NetworkOperatingSystem.addPacketToChannel end-to-end, timed inside a
+ *   complete simulation of the test topology.
+ *
+ * Parameters are given as name=value[,value...] arguments, every combination
+ * being measured:
+ *
+ *   policies=6,1000,10000   number of ABAC rules (synthetic)
+ *   cacheSize=100,1000      decision cache capacity
+ *   hitRatio=0.5,0.9,0.99   target hit ratio of the cache benchmarks
+ *   iterations=200000       measured operations per benchmark
+ *   benchmarks=abac,xacml,cache,excel,nos
+ *
+ * Run with: ant benchmark -Dbenchmark.args="policies=100 hitRatio=0.9"
+ */
+public class DecisionPathBenchmark {
+
+    private static final String[] ACTIONS = {"GET", "PUT", "POST", "DELETE"};
+    private static final int KEY_STREAM_LENGTH = 1 << 16;
+
+    private final Map<String, String> parameters = new HashMap<String, String>();
+    private final PrintStream out = System.out;
+    private final Random random = new Random(42);
+
+    public static void main(String[] args) throws Exception {
+        DecisionPathBenchmark benchmark = new DecisionPathBenchmark();
+        for (String arg : args) {
+            int i = arg.indexOf('=');
+            if (i <= 0) {
+                System.err.println("Invalid argument (name=value expected): " + arg);
+                System.exit(1);
+            }
+            benchmark.parameters.put(arg.substring(0, i), arg.substring(i + 1));
+        }
+        benchmark.runAll();
+    }
+
+    private String get(String name, String defaultValue) {
+        String value = parameters.get(name);
+        return (value == null) ? System.getProperty("benchmark." + name, defaultValue) : value;
+    }
+
+    private int[] getInts(String name, String defaultValue) {
+        String[] values = get(name, defaultValue).split(",");
+        int[] ints = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            ints[i] = Integer.parseInt(values[i].trim());
+        }
+        return ints;
+    }
+
+    private double[] getDoubles(String name, String defaultValue) {
+        String[] values = get(name, defaultValue).split(",");
+        double[] doubles = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            doubles[i] = Double.parseDouble(values[i].trim());
+        }
+        return doubles;
+    }
+
+    private void runAll() throws Exception {
+        List<String> benchmarks = Arrays.asList(get("benchmarks", "abac,xacml,cache,excel,nos").split(","));
+        int iterations = getInts("iterations", "200000")[0];
+        int warmup = Math.max(iterations / 2, 1);
+
+        Benchmark.printHeader(out);
+        if (benchmarks.contains("abac")) {
+            for (int n : getInts("policies", "6,100,1000,10000")) {
+                List<ABAC_Policy> policies = policies(n);
+                String[][] requests = requests(policies);
+                // The list scan is slow on large sets; keep its run time bounded
+                int listIterations = (int) Math.max(100, Math.min(iterations, 2e8 / Math.max(n, 1) / 10));
+                Benchmark.run(listScan(policies, requests), listIterations / 2, listIterations, out);
+                Benchmark.run(compiled(policies, requests), warmup, iterations, out);
+            }
+        }
+        if (benchmarks.contains("xacml")) {
+            Benchmark.run(xacml(), warmup, iterations, out);
+        }
+        if (benchmarks.contains("cache")) {
+            for (int capacity : getInts("cacheSize", "100,1000,10000")) {
+                for (double hitRatio : getDoubles("hitRatio", "0.5,0.9,0.99")) {
+                    long[] keys = keyStream(capacity, hitRatio);
+                    Benchmark.run(lruCache(capacity, hitRatio, keys), warmup, iterations, out);
+                    Benchmark.run(decisionCache(capacity, hitRatio, keys), warmup, iterations, out);
+                    Benchmark.run(concurrentDecisionCache(capacity, hitRatio, keys), warmup, iterations, out);
+                }
+            }
+        }
+        if (benchmarks.contains("excel")) {
+            int excelIterations = getInts("excelIterations", "20")[0];
+            Benchmark.run(findInExcel(), 2, excelIterations, out);
+            Benchmark.run(attributeRepository(), warmup, iterations, out);
+        }
+        if (benchmarks.contains("nos")) {
+            for (String method : get("method", "Proposed,Base").split(",")) {
+                for (int capacity : getInts("cacheSize", "100,1000,10000")) {
+                    addPacketToChannel(method, capacity);
+                }
+            }
+        }
+    }
+
+    //------------------------------------------------------------- ABAC
+
+    /**
+     * n rules in the CSV format, one per subject, each subject being allowed
+     * or denied one action on one resource.
+     */
+    private static List<ABAC_Policy> policies(int n) {
+        List<ABAC_Policy> policies = new ArrayList<ABAC_Policy>(n);
+        for (int i = 0; i < n; i++) {
+            policies.add(new ABAC_Policy(String.valueOf(i + 1), "Role:\"S" + i + "\"", ACTIONS[i % ACTIONS.length],
+                    "URI:\"192.168." + (i / 250) % 250 + "." + i % 250 + "\"", "Time_Flag:5",
+                    (i % 3 == 0) ? "deny" : "allow"));
+        }
+        return policies;
+    }
+
+    // Half of the requests match a rule taken at random, half match none
+    private String[][] requests(List<ABAC_Policy> policies) {
+        String[][] requests = new String[1024][];
+        for (int i = 0; i < requests.length; i++) {
+            ABAC_Policy p = policies.get(random.nextInt(policies.size()));
+            String subject = (i % 2 == 0) ? p.getSubject() : "Role:\"unknown" + i + "\"";
+            requests[i] = new String[]{subject, p.getAction(), p.getResource(), p.getEnvironment()};
+        }
+        return requests;
+    }
+
+    private static Benchmark listScan(final List<ABAC_Policy> policies, final String[][] requests) {
+        return new Benchmark("ABAC_Policy.evaluateAccess", "policies=" + policies.size()) {
+            @Override
+            protected int operation(int i) {
+                String[] r = requests[i & (requests.length - 1)];
+                return ABAC_Policy.evaluateAccess(r[0], r[1], r[2], r[3], policies) ? 1 : 0;
+            }
+        };
+    }
+
+    private static Benchmark compiled(final List<ABAC_Policy> policies, final String[][] requests) {
+        return new Benchmark("PolicyEngine.evaluate", "policies=" + policies.size()) {
+            private final PolicyEngine.CompiledPolicySet set = new PolicyEngine.CompiledPolicySet(policies, 1, 0);
+
+            @Override
+            protected int operation(int i) {
+                String[] r = requests[i & (requests.length - 1)];
+                return set.evaluate(r[0], r[1], r[2], r[3]) ? 1 : 0;
+            }
+        };
+    }
+
+    //------------------------------------------------------------- XACML
+
+    private Benchmark xacml() {
+        return new Benchmark("MyXXACML.check", "MyXACML.xml") {
+            private final List<Map<String, String>> requests = new ArrayList<Map<String, String>>();
+
+            @Override
+            protected void setUp() {
+                MyXXACML.getPolicySet();
+                for (int i = 0; i < 1024; i++) {
+                    int src = random.nextInt(Config.CoapClient_Number);
+                    int dst = random.nextInt(Config.CoapServer_Number);
+                    requests.add(AccessController.xacmlAttributes(new AccessRequest(src, dst, 0, "GET", 0)));
+                }
+            }
+
+            @Override
+            protected int operation(int i) {
+                return MyXXACML.check(requests.get(i & 1023)) ? 1 : 0;
+            }
+        };
+    }
+
+    //------------------------------------------------------------- caches
+
+    /**
+     * (src, dst) keys such that about hitRatio of the lookups hit a cache of
+     * the given capacity: hits come from a hot set of capacity / 2 pairs,
+     * misses from pairs never seen before.
+     */
+    private long[] keyStream(int capacity, double hitRatio) {
+        int hot = Math.max(capacity / 2, 1);
+        long[] keys = new long[KEY_STREAM_LENGTH];
+        int cold = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (random.nextDouble() < hitRatio) {
+                int pair = random.nextInt(hot);
+                keys[i] = DecisionCache.key(pair, pair);
+            } else {
+                cold++;
+                keys[i] = DecisionCache.key(hot + cold, -cold);
+            }
+        }
+        return keys;
+    }
+
+    private static Benchmark lruCache(final int capacity, double hitRatio, final long[] keys) {
+        return new Benchmark("LRUcache get/put", "cacheSize=" + capacity + " hitRatio=" + hitRatio) {
+            private final LRUcache cache = new LRUcache(capacity);
+            private final List<HashMap<Integer, Integer>> pairs = new ArrayList<HashMap<Integer, Integer>>();
+
+            @Override
+            protected void setUp() {
+                for (long key : keys) {
+                    HashMap<Integer, Integer> pair = new HashMap<Integer, Integer>();
+                    pair.put(DecisionCache.getSrc(key), DecisionCache.getDst(key));
+                    pairs.add(pair);
+                }
+            }
+
+            @Override
+            protected int operation(int i) {
+                HashMap<Integer, Integer> pair = pairs.get(i & (KEY_STREAM_LENGTH - 1));
+                if (cache.get(pair) == null) {
+                    cache.put(pair, (double) i);
+                    return 0;
+                }
+                return 1;
+            }
+        };
+    }
+
+    private static Benchmark decisionCache(final int capacity, final double hitRatio, final long[] keys) {
+        return new Benchmark("DecisionCache get/put", "cacheSize=" + capacity + " hitRatio=" + hitRatio) {
+            private final DecisionCache cache = new DecisionCache(capacity, Config.Cache_Eviction);
+
+            @Override
+            protected int operation(int i) {
+                long key = keys[i & (KEY_STREAM_LENGTH - 1)];
+                int src = DecisionCache.getSrc(key);
+                int dst = DecisionCache.getDst(key);
+                if (cache.get(src, dst) == DecisionCache.NOT_FOUND) {
+                    cache.put(src, dst, i, DecisionCache.PERMIT);
+                    return 0;
+                }
+                return 1;
+            }
+
+            @Override
+            protected void tearDown() {
+                System.err.printf("  DecisionCache (%s) measured hit ratio: %.3f%n",
+                        cache.getEvictionPolicyName(), cache.getHitRatio());
+            }
+        };
+    }
+
+    private static Benchmark concurrentDecisionCache(final int capacity, double hitRatio, final long[] keys) {
+        return new Benchmark("ConcurrentDecisionCache get/put", "cacheSize=" + capacity + " hitRatio=" + hitRatio) {
+            private final ConcurrentDecisionCache cache
+                    = new ConcurrentDecisionCache(capacity, Config.Cache_Eviction, Config.Cache_Stripes);
+
+            @Override
+            protected int operation(int i) {
+                long key = keys[i & (KEY_STREAM_LENGTH - 1)];
+                int src = DecisionCache.getSrc(key);
+                int dst = DecisionCache.getDst(key);
+                if (cache.getValidDecision(src, dst, i, Double.MAX_VALUE, 0) == DecisionCache.UNKNOWN) {
+                    cache.put(src, dst, i, DecisionCache.PERMIT, DecisionCache.NO_OBLIGATIONS, 0);
+                    return 0;
+                }
+                return 1;
+            }
+        };
+    }
+
+    //------------------------------------------------------------- attributes
+
+    private Benchmark findInExcel() {
+        return new Benchmark("ReadWriteExcelFile.FindInExcel", "Network_access.xls") {
+            @Override
+            protected int operation(int i) throws Exception {
+                return ReadWriteExcelFile.FindInExcel("Network_access.xls", i % 2, random.nextInt(60));
+            }
+        };
+    }
+
+    private Benchmark attributeRepository() {
+        return new Benchmark("ExcelAttributeRepository.find", "Network_access.xls") {
+            private AttributeRepository repository;
+
+            @Override
+            protected void setUp() {
+                repository = AccessController.getAttributeRepository();
+            }
+
+            @Override
+            protected int operation(int i) {
+                Object found = (i % 2 == 0)
+                        ? repository.findSubject(i % Config.CoapClient_Number)
+                        : repository.findObject(i % Config.CoapServer_Number);
+                return (found == null) ? 0 : 1;
+            }
+        };
+    }
+
+    //------------------------------------------------------------- end-to-end
+
+    /**
+     * NOS timing every addPacketToChannel call of the simulation.
+     */
+    static class TimedNetworkOperatingSystem extends NetworkOperatingSystemSimple {
+        long packets = 0;
+        long elapsed = 0;
+
+        @Override
+        public Packet addPacketToChannel(Packet orgPkt) throws IOException {
+            long start = System.nanoTime();
+            Packet pkt = super.addPacketToChannel(orgPkt);
+            elapsed += System.nanoTime() - start;
+            packets++;
+            return pkt;
+        }
+    }
+
+    /**
+     * Runs the test topology (physical.test.json, virtual.test.json,
+     * workload.csv) with the given method and decision cache capacity. Like
+     * ABsdn, the simulation writes its result files in the working directory.
+     */
+    private void addPacketToChannel(String method, int capacity) throws Exception {
+        String physical = get("physical", ABsdn.physicalTopologyFile);
+        String virtual = get("virtual", ABsdn.deploymentFile);
+        String workload = get("workload", ABsdn.workload_files[0]);
+
+        String savedMethod = Config.Method;
+        ConcurrentDecisionCache savedCache = Config.TEMP;
+        ConcurrentDecisionCache savedLastRequestTime = Config.Last_Request_Time;
+        PrintStream stdout = System.out;
+        TimedNetworkOperatingSystem nos;
+        try {
+            Config.Method = method;
+            Config.TEMP = new ConcurrentDecisionCache(capacity, Config.Cache_Eviction, Config.Cache_Stripes);
+            Config.Last_Request_Time = new ConcurrentDecisionCache(Config.CoapClient_Number * Config.CoapServer_Number, "LRU", Config.Cache_Stripes);
+            System.setOut(Benchmark.NULL_OUT);
+            if (Config.Server_Table.isEmpty()) {
+                Config.Client_Table = ReadWriteExcelFile.ReadFromExcel("Network_access.xls", 0);
+                Config.Server_Table = ReadWriteExcelFile.ReadFromExcel("Network_access.xls", 1);
+            }
+            Log.disable();
+
+            CloudSim.init(1, Calendar.getInstance(), false);
+            nos = new TimedNetworkOperatingSystem();
+            PhysicalTopologyParser.loadPhysicalTopologySingleDC(physical, nos, new HostFactorySimple());
+            nos.setLinkSelectionPolicy(new LinkSelectionPolicyDestinationAddress());
+            SDNDatacenter datacenter = ABsdn.createSDNDatacenter("Datacenter_0", physical, nos,
+                    new ABsdn.VmAllocationPolicyFactory() {
+                        public VmAllocationPolicy create(List<? extends Host> hostList) {
+                            return new VmAllocationPolicyCombinedLeastFullFirst(hostList);
+                        }
+                    });
+            SDNBroker broker = ABsdn.createBroker();
+            broker.submitDeployApplication(datacenter, virtual);
+            broker.submitRequests(workload);
+            CloudSim.startSimulation();
+            CloudSim.stopSimulation();
+        } finally {
+            Log.enable();
+            System.setOut(stdout);
+            Config.Method = savedMethod;
+            Config.TEMP = savedCache;
+            Config.Last_Request_Time = savedLastRequestTime;
+        }
+
+        double nsPerOp = (nos.packets == 0) ? 0 : (double) nos.elapsed / nos.packets;
+        out.printf("%-36s %-34s %10d %14.1f %14.0f%n", "NOS.addPacketToChannel",
+                method + " cacheSize=" + capacity, nos.packets, nsPerOp, (nsPerOp == 0) ? 0 : 1e9 / nsPerOp);
+    }
+}
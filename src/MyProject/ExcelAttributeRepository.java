@@ -0,0 +1,134 @@
+package MyProject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Row;
+
+/**
+ * Attribute repository backed by Network_access.xls. Both sheets are read once
+ * when the repository is created and kept in arrays indexed by id, replacing
+ * the per-request workbook parsing of {@link ReadWriteExcelFile#FindInExcel}.
+ */
+public class ExcelAttributeRepository implements AttributeRepository {
+
+    public static final int SUBJECT_SHEET = 0;
+    public static final int OBJECT_SHEET = 1;
+
+    private final SubjectAttributes[] subjects;
+    private final ObjectAttributes[] objects;
+
+    public ExcelAttributeRepository(String XLSfileName) throws IOException {
+        List<SubjectAttributes> subjectRows = new ArrayList<SubjectAttributes>();
+        List<ObjectAttributes> objectRows = new ArrayList<ObjectAttributes>();
+
+        FileInputStream fis = new FileInputStream(new File(XLSfileName));
+        try {
+            HSSFWorkbook wb = new HSSFWorkbook(fis);
+            FormulaEvaluator formulaEvaluator = wb.getCreationHelper().createFormulaEvaluator();
+
+            HSSFSheet sheet = wb.getSheetAt(SUBJECT_SHEET);
+            for (Row row : sheet) {
+                if (!isNumeric(formulaEvaluator, row.getCell(0))) {
+                    continue; // header
+                }
+                subjectRows.add(new SubjectAttributes(
+                        intValue(formulaEvaluator, row.getCell(0)),
+                        intValue(formulaEvaluator, row.getCell(1)),
+                        intValue(formulaEvaluator, row.getCell(2)),
+                        intValue(formulaEvaluator, row.getCell(3)),
+                        stringValue(formulaEvaluator, row.getCell(4)),
+                        stringValue(formulaEvaluator, row.getCell(5))));
+            }
+
+            sheet = wb.getSheetAt(OBJECT_SHEET);
+            for (Row row : sheet) {
+                if (!isNumeric(formulaEvaluator, row.getCell(0))) {
+                    continue; // header
+                }
+                objectRows.add(new ObjectAttributes(
+                        intValue(formulaEvaluator, row.getCell(0)),
+                        stringValue(formulaEvaluator, row.getCell(1)),
+                        stringValue(formulaEvaluator, row.getCell(2)),
+                        intValue(formulaEvaluator, row.getCell(3)),
+                        intValue(formulaEvaluator, row.getCell(4))));
+            }
+            wb.close();
+        } finally {
+            fis.close();
+        }
+
+        int maxId = -1;
+        for (SubjectAttributes s : subjectRows) {
+            maxId = Math.max(maxId, s.getVmID());
+        }
+        subjects = new SubjectAttributes[maxId + 1];
+        for (SubjectAttributes s : subjectRows) {
+            // First row wins, like the sequential search it replaces
+            if (s.getVmID() >= 0 && subjects[s.getVmID()] == null) {
+                subjects[s.getVmID()] = s;
+            }
+        }
+
+        maxId = -1;
+        for (ObjectAttributes o : objectRows) {
+            maxId = Math.max(maxId, o.getID());
+        }
+        objects = new ObjectAttributes[maxId + 1];
+        for (ObjectAttributes o : objectRows) {
+            if (o.getID() >= 0 && objects[o.getID()] == null) {
+                objects[o.getID()] = o;
+            }
+        }
+
+        System.out.println("Attributes loaded from " + XLSfileName + ": "
+                + subjectRows.size() + " clients, " + objectRows.size() + " servers");
+    }
+
+    @Override
+    public SubjectAttributes findSubject(int vmId) {
+        if (vmId < 0 || vmId >= subjects.length) {
+            return null;
+        }
+        return subjects[vmId];
+    }
+
+    @Override
+    public ObjectAttributes findObject(int id) {
+        if (id < 0 || id >= objects.length) {
+            return null;
+        }
+        return objects[id];
+    }
+
+    private static boolean isNumeric(FormulaEvaluator formulaEvaluator, Cell cell) {
+        return cell != null && formulaEvaluator.evaluateInCell(cell).getCellType() == Cell.CELL_TYPE_NUMERIC;
+    }
+
+    private static int intValue(FormulaEvaluator formulaEvaluator, Cell cell) {
+        if (isNumeric(formulaEvaluator, cell)) {
+            return (int) cell.getNumericCellValue();
+        }
+        return 0;
+    }
+
+    private static String stringValue(FormulaEvaluator formulaEvaluator, Cell cell) {
+        if (cell == null) {
+            return "";
+        }
+        switch (formulaEvaluator.evaluateInCell(cell).getCellType()) {
+            case Cell.CELL_TYPE_STRING:
+                return cell.getStringCellValue();
+            case Cell.CELL_TYPE_NUMERIC:
+                return Integer.toString((int) cell.getNumericCellValue());
+            default:
+                return "";
+        }
+    }
+}
@@ -450,6 +450,13 @@ public class LogPrinter {
 //                    + CoapClientEnergyConsumption + CoapServerEnergyConsumption
 //            ));
             str.add(Double.toString(HostUtilization));
+            // Decision cache of the method
+            ConcurrentDecisionCache cache = Config.Method.startsWith("Base") ? Config.Last_Request_Time : Config.TEMP;
+            str.add(cache.getEvictionPolicyName());
+            str.add(Long.toString(cache.getHits()));
+            str.add(Long.toString(cache.getMisses()));
+            System.out.println("Decision cache (" + cache.getEvictionPolicyName() + "): hits=" + cache.getHits()
+                    + ", misses=" + cache.getMisses() + ", evictions=" + cache.getEvictions() + ", AC=" + Config.AC);
             ReadWriteExcelFile.updateXLSfile(str, "Results.xls");
             System.out.println("Results are exported to Excel!");
         } catch (Exception e) {
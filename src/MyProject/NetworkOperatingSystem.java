@@ -105,9 +105,6 @@ public abstract class NetworkOperatingSystem extends SimEntity {
     private double lastAdjustAllChannelTime = -1;
     private double nextEventTime = -1;
 
-    private int src, dst, flowId;
-    private Packet pkt;
-    HashMap<Integer, Integer> temp = new HashMap<Integer, Integer>();
     CoapMessage CM = new CoapMessage(CoapMessageType.NON, 2, 0);
 
     /**
@@ -190,7 +187,7 @@ public abstract class NetworkOperatingSystem extends SimEntity {
                 if (this.datacenter != null) {
                     this.datacenter.processUpdateProcessing();
                 }
-                channelManager.updatePacketProcessing();
+                channelManager.updateAllPacketProcessing();
 
                 this.updateBWMonitor(Configuration.monitoringTimeInterval);
                 this.updateHostMonitor(Configuration.monitoringTimeInterval);
@@ -289,7 +286,7 @@ public abstract class NetworkOperatingSystem extends SimEntity {
     }
 
     protected void processInternalAdjustChannels() {
-        channelManager.adjustAllChannel();
+        channelManager.adjustChangedChannels();
     }
 
     public boolean startDeployApplicatoin() {
@@ -380,7 +377,7 @@ public abstract class NetworkOperatingSystem extends SimEntity {
                     ch.getChId(), sender, nodes, links);
 
             // update with the new nodes and links
-            ch.updateRoute(nodes, links);
+            channelManager.updateChannelRoute(ch, nodes, links);
         }
     }
 
@@ -746,56 +743,20 @@ public abstract class NetworkOperatingSystem extends SimEntity {
         Config.Server_Table.get(server % Config.Server_Table.size()).add(2, "server IP");
     }
 
-    public Boolean Check_Security() {//Chech access control in TEMP
-        boolean tag = false;
-
-        System.out.println("Checking time flag....");//check in TEMP 
-        if (!Objects.isNull(src) && !Objects.isNull(dst) && !Objects.isNull(temp)) {
-            temp.put(src, dst);
-            System.out.println("Checking time flag....1");//check Time expiration in TEMP
-            System.out.println("(src , dst) = (" + src + " , " + dst + ")");
-            //System.out.println("Config.Last_Request_Time.Size" + Config.Last_Request_Time.size());
-            //double x = CloudSim.clock() - Config.Last_Request_Time.get(temp);
-            if ((!Objects.isNull(Config.TEMP))
-                    && (!Objects.isNull(Config.TEMP.get(temp)))// src, dsc
-                    && (CloudSim.clock() - Config.TEMP.get(temp) + 10 > Config.Time_Flag)) {
-                //   x = CloudSim.clock() - Config.Last_Request_Time.get(temp);
-                System.out.println("Checking time flag....2");
-                String vmName = ((SDNVm) findVmGlobal(src)).getName();
-
-                try {
-                    System.out.println("Checking Network access file....");
-                    //------ Check Client attribute from Excel
-                    ReadWriteExcelFile.FindInExcel("Network_access.xls", 0, src);
-                    //------ Check Server attribute from Excel
-                    ReadWriteExcelFile.FindInExcel("Network_access.xls", 1, dst);
-                } catch (IOException ex) {
-                    Logger.getLogger(NetworkOperatingSystem.class.getName()).log(Level.SEVERE, null, ex);
-                }
-                //------ ABAC
-                
-                List<ABAC_Policy> policies = ABAC_Policy.readPoliciesFromCSV("ABAC_Policy_Set.csv");
-                boolean accessGranted = ABAC_Policy.evaluateAccess(Config.sub_att,Config.Action,Config.obj_att,Config.IP, policies);
-                System.out.println("Access granted: " + accessGranted);
-
-                tag=accessGranted;
-            Config.AC++;
-            } else {
-                Config.No_AC++;
-            }
-        } else {
-            tag = true;
+    public boolean Check_Security(AccessRequest request) {//Chech access control in TEMP
+        return AccessController.checkProposed(request);
+    }
 
-        }
-        return tag;
+    public boolean[] Check_Security(List<AccessRequest> requests) {//Burst of requests, one decision per (src, dst)
+        return AccessController.evaluateBatch(requests);
     }
 
 
     public Packet addPacketToChannel(Packet orgPkt) throws IOException {
         CoapMessage m = new CoapMessage();
         Config.Packet_Counter++;
+        Packet pkt = orgPkt;
         if (Config.Method.startsWith("Proposed")) {
-            pkt = orgPkt;
             /*
 		if(sender.equals(sender.getVMRoute(src, dst, flowId))) {
 			// For loopback packet (when src and dst is on the same host)
@@ -810,10 +771,10 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 
             channelManager.updatePacketProcessing();
 
-            flowId = pkt.getFlowId();
-            src = pkt.getOrigin();
+            int flowId = pkt.getFlowId();
+            int src = pkt.getOrigin();
            
-            dst = pkt.getDestination();
+            int dst = pkt.getDestination();
 
             //---------------------------------------
             Function_Owner(src);
@@ -841,7 +802,7 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 
             //findHost(findVmGlobal(src).getId()).get
             //---------------------------------------------------------
-            if (Check_Security()) {
+            if (Check_Security(new AccessRequest(src, dst, flowId, Config.Action, CloudSim.clock()))) {
                 System.out.println("Security checked!");
                 
                 Channel channel = channelManager.findChannel(src, dst, flowId);
@@ -861,7 +822,7 @@ public abstract class NetworkOperatingSystem extends SimEntity {
                         channelManager.addChannel(src, dst, flowId, channel);
                     }
 
-                    channel.addTransmission(new Transmission(pkt));
+                    channelManager.addTransmission(channel, new Transmission(pkt));
 //		Log.printLine(CloudSim.clock() + ": " + getName() + ".addPacketToChannel ("+channel
 //				+"): Transmission added:" + 
 //				NetworkOperatingSystem.getVmName(src) + "->"+
@@ -873,12 +834,8 @@ public abstract class NetworkOperatingSystem extends SimEntity {
                 
                 Config.Allowed_Packets++;
             }
-            //temp = null;
-            temp.put(src, dst);
-            Config.TEMP.put(temp, CloudSim.clock());
             //-------------------------------------
         } else if (Config.Method.startsWith("Base")) {
-            pkt = orgPkt;
            
             if (Configuration.ENABLE_SFC) {
                 pkt = sfcForwarder.enforceSFC(pkt);
@@ -905,32 +862,7 @@ public abstract class NetworkOperatingSystem extends SimEntity {
             }
 
             //---------------------------------------------------------
-            boolean tag = false;
-            temp.put(src, dst);
-            if ((!Objects.isNull(Config.Last_Request_Time))
-                    && (!Objects.isNull(Config.Last_Request_Time.get(temp)))// src, dsc
-                    && (CloudSim.clock() - Config.Last_Request_Time.get(temp) + 10 > Config.Time_Flag)) {
-                try {
-                    ReadWriteExcelFile.FindInExcel("Network_access.xls", 0, src);
-                    //------ Check Server from Excel
-                    ReadWriteExcelFile.FindInExcel("Network_access.xls", 1, dst);
-                } catch (IOException ex) {
-                    Logger.getLogger(NetworkOperatingSystem.class.getName()).log(Level.SEVERE, null, ex);
-                }
-                System.out.println("Checking AC ....");
-            /**************************************************************/
-                Map<String, String> XML_Cheak = new HashMap<>();
-                XML_Cheak.put("Location", String.valueOf(Config.Source));
-                XML_Cheak.put("IP",Config.IP);
-                XML_Cheak.put("URI",Config.URI);
-                tag = MyXXACML.check(XML_Cheak);
-                            
-             /***********************************************************/   
-                Config.AC++;
-            } else {
-                Config.No_AC++;//exppiration time not expired
-                tag= true;
-            }
+            boolean tag = AccessController.checkBase(new AccessRequest(src, dst, flowId, Config.Action, CloudSim.clock()));
     
             if (tag) {//CheckSecurity_Base()) {
                 System.out.println("Security checked!");
@@ -951,13 +883,11 @@ public abstract class NetworkOperatingSystem extends SimEntity {
                     channelManager.addChannel(src, dst, flowId, channel);
                 }
 
-                channel.addTransmission(new Transmission(pkt));
+                channelManager.addTransmission(channel, new Transmission(pkt));
 
                 sendInternalEvent();
                 Config.Allowed_Packets++;
             }
-            temp.put(src, dst);
-            Config.Last_Request_Time.put(temp, CloudSim.clock());
         }
         return pkt;
 
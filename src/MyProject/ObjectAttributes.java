@@ -0,0 +1,57 @@
+package MyProject;
+
+/**
+ * Immutable attributes of a CoAP server, one row of the "Servers" sheet of
+ * Network_access.xls.
+ */
+public class ObjectAttributes {
+
+    // Number of attribute columns, see getAttribute()
+    public static final int COLUMNS = 5;
+
+    private final int id;
+    private final String uri;
+    private final String ip;
+    private final int domain;
+    private final int securityLabel;
+
+    public ObjectAttributes(int id, String uri, String ip, int domain, int securityLabel) {
+        this.id = id;
+        this.uri = uri;
+        this.ip = ip;
+        this.domain = domain;
+        this.securityLabel = securityLabel;
+    }
+
+    public int getID() { return id; }
+    public String getURI() { return uri; }
+    public String getIP() { return ip; }
+    public int getDomain() { return domain; }
+    public int getSecurityLabel() { return securityLabel; }
+
+    /**
+     * Returns the value of the given column as a string, in sheet order:
+     * ID, URI, IP, DOMAIN, securityLabel.
+     */
+    public String getAttribute(int column) {
+        switch (column) {
+            case 0:
+                return Integer.toString(id);
+            case 1:
+                return uri;
+            case 2:
+                return ip;
+            case 3:
+                return Integer.toString(domain);
+            case 4:
+                return Integer.toString(securityLabel);
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ID: " + id + "  URI: " + uri + "  IP: " + ip + "  DOMAIN: " + domain + "  securityLabel: " + securityLabel;
+    }
+}
@@ -0,0 +1,102 @@
+package MyProject;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Random;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.sdn.Configuration;
+import org.cloudbus.cloudsim.sdn.PacketScheduler;
+import org.cloudbus.cloudsim.sdn.PacketSchedulerSpaceShared;
+import org.cloudbus.cloudsim.sdn.PacketSchedulerTimeShared;
+import org.cloudbus.cloudsim.sdn.physicalcomponents.Link;
+import org.cloudbus.cloudsim.sdn.physicalcomponents.Node;
+import org.cloudbus.cloudsim.sdn.virtualcomponents.Channel;
+import org.cloudbus.cloudsim.sdn.workload.Transmission;
+
+/**
+ * Cost of one packet processing event of a channel (PacketScheduler
+ * updatePacketProcessing() and nextFinishTime()) with a burst of concurrent
+ * transmissions in the channel, for both packet schedulers.
+ *
+ * Each operation advances the simulation clock to the next finish time,
+ * processes the channel and adds a new transmission for every completed or
+ * timed out one, so that the number of transmissions stays the same.
+ *
+ * Usage: PacketSchedulerBenchmark [transmissions,...] [iterations]
+ */
+public class PacketSchedulerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String[] sizes = (args.length > 0) ? args[0].split(",") : new String[]{"100", "1000", "10000"};
+        int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : 20000;
+        int warmup = iterations / 2;
+
+        Benchmark.printHeader(System.out);
+        for (String size : sizes) {
+            int transmissions = Integer.parseInt(size.trim());
+            Benchmark.run(new Processing(false, transmissions), warmup, iterations, System.out);
+            Benchmark.run(new Processing(true, transmissions), warmup, iterations, System.out);
+        }
+    }
+
+    /**
+     * CloudSim has no way of setting the clock without running a simulation.
+     */
+    static void setClock(double time) throws Exception {
+        Field clock = CloudSim.class.getDeclaredField("clock");
+        clock.setAccessible(true);
+        clock.setDouble(null, time);
+    }
+
+    static class Processing extends Benchmark {
+
+        private final boolean timeShared;
+        private final int transmissions;
+        private final Random random = new Random(1);
+        private PacketScheduler scheduler;
+        private double time;
+
+        Processing(boolean timeShared, int transmissions) {
+            super("packet scheduler event", (timeShared ? "time shared" : "space shared") + ", " + transmissions + " transmissions");
+            this.timeShared = timeShared;
+            this.transmissions = transmissions;
+        }
+
+        @Override
+        protected void setUp() throws Exception {
+            time = 0;
+            setClock(time);
+            Channel channel = new Channel(-1, 0, 1, new ArrayList<Node>(), new ArrayList<Link>(), 1e9, null, null);
+            scheduler = timeShared ? new PacketSchedulerTimeShared(channel) : new PacketSchedulerSpaceShared(channel);
+            scheduler.setTimeOut(Configuration.TIME_OUT);
+            for (int i = 0; i < transmissions; i++) {
+                addTransmission();
+            }
+        }
+
+        private void addTransmission() {
+            Packet pkt = new Packet(0, 1, 1000 + random.nextInt(100000), -1, null);
+            scheduler.addTransmission(new Transmission(pkt));
+            pkt.setPacketStartTime(time);
+        }
+
+        @Override
+        protected int operation(int i) throws Exception {
+            time += scheduler.nextFinishTime();
+            setClock(time);
+            scheduler.updatePacketProcessing();
+            int done = scheduler.getCompletedTransmission().size() + scheduler.getTimedOutTransmission().size();
+            scheduler.resetCompletedTransmission();
+            scheduler.resetTimedOutTransmission();
+            for (int n = 0; n < done; n++) {
+                addTransmission();
+            }
+            return done;
+        }
+
+        @Override
+        protected void tearDown() throws Exception {
+            setClock(0);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package MyProject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares the sequential and fork/join evaluation of synthetic ABAC policy
+ * sets of growing size, to locate the candidate list length from which
+ * splitting the search pays off (PolicyEngine.PARALLEL_THRESHOLD).
+ *
+ * Every rule set is built so that the request has rules.size() / 4 candidate
+ * rules and only the last one matches: the worst case for first-applicable,
+ * which has to scan the whole list.
+ *
+ * Each size is timed in several trials and the median is reported, so that
+ * one noisy trial does not move the crossover. With a single worker both
+ * modes run the same sequential scan, so no crossover is reported; the common
+ * pool size can be set with
+ * -Djava.util.concurrent.ForkJoinPool.common.parallelism=N.
+ *
+ * Usage: PolicyEvaluationBenchmark [max rules] [iterations] [trials]
+ */
+public class PolicyEvaluationBenchmark {
+
+    private static final String SUBJECT = "Role:\"R0\"";
+    private static final String ACTION = "A0";
+    private static final String RESOURCE = "URI:\"R0\"";
+    private static final String ENVIRONMENT = "Time_Flag:1";
+
+    // Keeps the JIT from discarding the evaluations
+    static volatile boolean sink;
+
+    public static void main(String[] args) {
+        int maxRules = (args.length > 0) ? Integer.parseInt(args[0]) : 1 << 22;
+        int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : 200;
+        int trials = (args.length > 2) ? Integer.parseInt(args[2]) : 7;
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        boolean parallel = pool.getParallelism() >= 2;
+
+        System.out.println("Parallelism: " + pool.getParallelism());
+        if (!parallel) {
+            System.out.println("Single worker: parallel evaluation falls back to the sequential scan, no crossover");
+        }
+        System.out.printf("%10s %12s %14s %14s %9s%n", "rules", "candidates", "sequential ns", "parallel ns", "speedup");
+        int crossover = -1;
+        for (int n = 1024; n <= maxRules; n *= 4) {
+            PolicyEngine.CompiledPolicySet set = new PolicyEngine.CompiledPolicySet(policies(n), 1, 0);
+            XacmlPolicySet.CombiningAlg alg = XacmlPolicySet.CombiningAlg.FIRST_APPLICABLE;
+            if (!set.evaluate(SUBJECT, ACTION, RESOURCE, ENVIRONMENT, alg)
+                    || !set.evaluateParallel(SUBJECT, ACTION, RESOURCE, ENVIRONMENT, alg, pool, 0)) {
+                throw new IllegalStateException("The last rule should permit the request");
+            }
+
+            int runs = Math.max(10, iterations * 1024 / n * 16);
+            long[] sequential = new long[trials];
+            long[] parallelTimes = new long[trials];
+            for (int t = 0; t < trials; t++) {
+                // Interleaved, so that both modes see the same machine state
+                sequential[t] = time(set, pool, Integer.MAX_VALUE, runs);
+                parallelTimes[t] = time(set, pool, 0, runs);
+            }
+            long sequentialMedian = median(sequential);
+            long parallelMedian = median(parallelTimes);
+            double speedup = (double) sequentialMedian / parallelMedian;
+            System.out.printf("%10d %12d %14d %14d %9.2f%n", set.size(), set.size() / 4,
+                    sequentialMedian, parallelMedian, speedup);
+            if (parallel && crossover < 0 && speedup > 1.1) {
+                crossover = set.size() / 4;
+            }
+        }
+        if (!parallel) {
+            return;
+        }
+        System.out.println((crossover < 0)
+                ? "Parallel evaluation never faster up to " + maxRules + " rules"
+                : "Crossover at about " + crossover + " candidate rules (PARALLEL_THRESHOLD = "
+                        + PolicyEngine.PARALLEL_THRESHOLD + ")");
+    }
+
+    private static long median(long[] times) {
+        long[] sorted = times.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * n rules over 4 subjects x 4 actions x 4 resources, the environment being
+     * derived from the other three so (SUBJECT, ACTION, RESOURCE, ENVIRONMENT)
+     * never matches, plus a last rule that does.
+     */
+    static List<ABAC_Policy> policies(int n) {
+        List<ABAC_Policy> policies = new ArrayList<ABAC_Policy>(n + 1);
+        for (int i = 0; i < n; i++) {
+            int s = i % 4;
+            int a = (i / 4) % 4;
+            int r = (i / 16) % 4;
+            policies.add(new ABAC_Policy(String.valueOf(i), "Role:\"R" + s + "\"", "A" + a,
+                    "URI:\"R" + r + "\"", "Time_Flag:" + (s + a + r) % 4, "deny"));
+        }
+        policies.add(new ABAC_Policy(String.valueOf(n), SUBJECT, ACTION, RESOURCE, ENVIRONMENT, "allow"));
+        return policies;
+    }
+
+    // Average time (ns) of one evaluation, after a warm-up of the same length
+    private static long time(PolicyEngine.CompiledPolicySet set, ForkJoinPool pool, int threshold, int runs) {
+        XacmlPolicySet.CombiningAlg alg = XacmlPolicySet.CombiningAlg.FIRST_APPLICABLE;
+        boolean result = false;
+        for (int i = 0; i < runs; i++) {
+            result ^= set.evaluateParallel(SUBJECT, ACTION, RESOURCE, ENVIRONMENT, alg, pool, threshold);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            result ^= set.evaluateParallel(SUBJECT, ACTION, RESOURCE, ENVIRONMENT, alg, pool, threshold);
+        }
+        long elapsed = System.nanoTime() - start;
+        sink = result;
+        return elapsed / runs;
+    }
+}
@@ -21,6 +21,10 @@ public class ReadWriteExcelFile {
     public static int FindInExcel(String XLSfileName, int SheetNumber, int rowID) throws IOException {
         Random random=new Random();
         int r=random.nextInt(6);
+        // Attributes of the current row; the matching row ends the search
+        int vmID = 0, Source = 0, Age = 0, Sensivity = 0, ID = 0, DOMAIN = 0, securityLabel = 0;
+        String Role = "", Specialty = "", URI = "", IP = "";
+        String sub_att = "", obj_att = "";
         String current = new java.io.File(".").getCanonicalPath();
         String excelFilePath = current + "\\" + XLSfileName;
 
@@ -47,24 +51,24 @@ public class ReadWriteExcelFile {
                             //getting the value of the cell as a number  
                             switch (cell_counter) {
                                 case 0:
-                                    Config.vmID = (int) cell.getNumericCellValue();
-                                     if(r==cell_counter)Config.sub_att=Integer.toString(Config.vmID);
-                                    //Config.sub_att+=Integer.toString(Config.vmID);
+                                    vmID = (int) cell.getNumericCellValue();
+                                     if(r==cell_counter)sub_att=Integer.toString(vmID);
+                                    //sub_att+=Integer.toString(vmID);
                                     break;
                                 case 1:
-                                    Config.Source = (int) cell.getNumericCellValue();
-                                    if(r==cell_counter)Config.sub_att=Integer.toString(Config.Source);
-                                    //Config.sub_att+=Integer.toString(Config.Source);
+                                    Source = (int) cell.getNumericCellValue();
+                                    if(r==cell_counter)sub_att=Integer.toString(Source);
+                                    //sub_att+=Integer.toString(Source);
                                     break;
                                 case 2:
-                                    Config.Age = (int) cell.getNumericCellValue();
-                                    if(r==cell_counter)Config.sub_att=Integer.toString(Config.Age);
-                                    //Config.sub_att+=Integer.toString(Config.Age);
+                                    Age = (int) cell.getNumericCellValue();
+                                    if(r==cell_counter)sub_att=Integer.toString(Age);
+                                    //sub_att+=Integer.toString(Age);
                                     break;
                                 case 3:
-                                    Config.Sensivity = (int) cell.getNumericCellValue();
-                                    if(r==cell_counter)Config.sub_att=Integer.toString(Config.Sensivity);
-                                    //Config.sub_att+=Integer.toString(Config.Sensivity);
+                                    Sensivity = (int) cell.getNumericCellValue();
+                                    if(r==cell_counter)sub_att=Integer.toString(Sensivity);
+                                    //sub_att+=Integer.toString(Sensivity);
                                     break;
                                 
                                 default:
@@ -75,14 +79,14 @@ public class ReadWriteExcelFile {
                             //getting the value of the cell as a string
                             switch (cell_counter){
                                 case 4:
-                                    Config.Role=cell.getStringCellValue();
-                                    if(r==cell_counter)Config.sub_att=Config.Role;
-                                    //Config.sub_att+=Config.Role;
+                                    Role=cell.getStringCellValue();
+                                    if(r==cell_counter)sub_att=Role;
+                                    //sub_att+=Role;
                                     break;
                                 case 5:
-                                    Config.Specialty=cell.getStringCellValue();
-                                    if(r==cell_counter)Config.sub_att=Config.Specialty;
-                                    //Config.sub_att+=Config.Specialty;
+                                    Specialty=cell.getStringCellValue();
+                                    if(r==cell_counter)sub_att=Specialty;
+                                    //sub_att+=Specialty;
                                     break;
                                 
                             }
@@ -90,9 +94,9 @@ public class ReadWriteExcelFile {
                     }
                     cell_counter++;
                 }
-                if (Config.vmID == rowID) {
-                    System.out.println("vmID: " + Config.vmID + "  Source: " + Config.Source
-                            + "  Age: " + Config.Age + "  Sensivity: " + Config.Sensivity+ "Role: "+Config.Role+ "Specialty:"+Config.Specialty);
+                if (vmID == rowID) {
+                    System.out.println("vmID: " + vmID + "  Source: " + Source
+                            + "  Age: " + Age + "  Sensivity: " + Sensivity+ "Role: "+Role+ "Specialty:"+Specialty);
                     break;
                 }
             } else if (SheetNumber == 1) {
@@ -104,19 +108,19 @@ public class ReadWriteExcelFile {
                             //getting the value of the cell as a number  
                             switch (cell_counter) {
                                 case 0:
-                                    Config.ID = (int) cell.getNumericCellValue();
-                                    if(r==cell_counter)Config.obj_att=Integer.toString(Config.ID);
-                                    //Config.obj_att+=Integer.toString(Config.ID);
+                                    ID = (int) cell.getNumericCellValue();
+                                    if(r==cell_counter)obj_att=Integer.toString(ID);
+                                    //obj_att+=Integer.toString(ID);
                                     break;
                                 case 3:
-                                    Config.DOMAIN = (int) cell.getNumericCellValue();
-                                    if(r==cell_counter)Config.obj_att=Integer.toString(Config.DOMAIN);
-                                    //Config.obj_att+=Integer.toString(Config.DOMAIN);
+                                    DOMAIN = (int) cell.getNumericCellValue();
+                                    if(r==cell_counter)obj_att=Integer.toString(DOMAIN);
+                                    //obj_att+=Integer.toString(DOMAIN);
                                     break;
                                 case 4:
-                                    Config.securityLabel=(int)cell.getNumericCellValue();;
-                                     if(r==cell_counter)Config.obj_att=Integer.toString(Config.securityLabel);
-                                    //Config.obj_att+=Integer.toString(Config.securityLabel);
+                                    securityLabel=(int)cell.getNumericCellValue();;
+                                     if(r==cell_counter)obj_att=Integer.toString(securityLabel);
+                                    //obj_att+=Integer.toString(securityLabel);
                                 default:
                             }
 
@@ -125,14 +129,14 @@ public class ReadWriteExcelFile {
                             //getting the value of the cell as a string  
                             switch (cell_counter) {
                                 case 1:
-                                    Config.URI = cell.getStringCellValue();
-                                    if(r==cell_counter)Config.obj_att=Config.URI;
-                                    //Config.obj_att+=Config.URI;
+                                    URI = cell.getStringCellValue();
+                                    if(r==cell_counter)obj_att=URI;
+                                    //obj_att+=URI;
                                     break;
                                 case 2:
-                                    Config.IP = cell.getStringCellValue();
-                                    if(r==cell_counter)Config.obj_att=Config.IP;
-                                    //Config.obj_att+=Config.IP;
+                                    IP = cell.getStringCellValue();
+                                    if(r==cell_counter)obj_att=IP;
+                                    //obj_att+=IP;
                                     break;
                                 default:
                             }
@@ -140,9 +144,9 @@ public class ReadWriteExcelFile {
                     }
                     cell_counter++;
                 }
-                if (Config.ID == rowID) {
-                    System.out.println("ID: " + Config.ID + "  URI: " + Config.URI
-                            + "  URI: " + Config.IP + "  DOMAIN: " + Config.DOMAIN  +" securityLabel"  + Config.securityLabel);
+                if (ID == rowID) {
+                    System.out.println("ID: " + ID + "  URI: " + URI
+                            + "  URI: " + IP + "  DOMAIN: " + DOMAIN  +" securityLabel"  + securityLabel);
                     break;
                 }
 
@@ -162,7 +166,8 @@ public class ReadWriteExcelFile {
         System.out.println("Read from Excel: " + excelFilePath);
 
         //obtaining input bytes from a file  
-        FileInputStream fis = new FileInputStream(new File(excelFilePath));
+        //FileInputStream fis = new FileInputStream(new File(excelFilePath));
+        FileInputStream fis = new FileInputStream(new File(XLSfileName));
         //creating workbook instance that refers to .xls file  
         HSSFWorkbook wb = new HSSFWorkbook(fis);
         //creating a Sheet object to retrieve the object  
@@ -0,0 +1,84 @@
+package MyProject;
+
+/**
+ * Doubly linked list of cache slots. Several lists may share the same
+ * prev/next arrays as long as a slot belongs to at most one of them, which is
+ * how the segmented eviction policies move slots between regions in O(1).
+ */
+final class SlotList {
+
+    static final int NIL = -1;
+
+    private final int[] prev;
+    private final int[] next;
+    private int head = NIL; // most recently used
+    private int tail = NIL; // least recently used
+    private int size = 0;
+
+    SlotList(int[] prev, int[] next) {
+        this.prev = prev;
+        this.next = next;
+    }
+
+    void addFirst(int slot) {
+        prev[slot] = NIL;
+        next[slot] = head;
+        if (head != NIL) {
+            prev[head] = slot;
+        }
+        head = slot;
+        if (tail == NIL) {
+            tail = slot;
+        }
+        size++;
+    }
+
+    void remove(int slot) {
+        int p = prev[slot];
+        int n = next[slot];
+        if (p != NIL) {
+            next[p] = n;
+        } else {
+            head = n;
+        }
+        if (n != NIL) {
+            prev[n] = p;
+        } else {
+            tail = p;
+        }
+        size--;
+    }
+
+    void moveToFirst(int slot) {
+        if (head != slot) {
+            remove(slot);
+            addFirst(slot);
+        }
+    }
+
+    int removeLast() {
+        int slot = tail;
+        if (slot != NIL) {
+            remove(slot);
+        }
+        return slot;
+    }
+
+    int last() {
+        return tail;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        head = NIL;
+        tail = NIL;
+        size = 0;
+    }
+}
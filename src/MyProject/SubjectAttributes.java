@@ -0,0 +1,63 @@
+package MyProject;
+
+/**
+ * Immutable attributes of a CoAP client, one row of the "Clients" sheet of
+ * Network_access.xls.
+ */
+public class SubjectAttributes {
+
+    // Number of attribute columns, see getAttribute()
+    public static final int COLUMNS = 6;
+
+    private final int vmID;
+    private final int source;
+    private final int age;
+    private final int sensivity;
+    private final String role;
+    private final String specialty;
+
+    public SubjectAttributes(int vmID, int source, int age, int sensivity, String role, String specialty) {
+        this.vmID = vmID;
+        this.source = source;
+        this.age = age;
+        this.sensivity = sensivity;
+        this.role = role;
+        this.specialty = specialty;
+    }
+
+    public int getVmID() { return vmID; }
+    public int getSource() { return source; }
+    public int getAge() { return age; }
+    public int getSensivity() { return sensivity; }
+    public String getRole() { return role; }
+    public String getSpecialty() { return specialty; }
+
+    /**
+     * Returns the value of the given column as a string, in sheet order:
+     * vmID, Source, Age, Sensivity, Role, Specialty.
+     */
+    public String getAttribute(int column) {
+        switch (column) {
+            case 0:
+                return Integer.toString(vmID);
+            case 1:
+                return Integer.toString(source);
+            case 2:
+                return Integer.toString(age);
+            case 3:
+                return Integer.toString(sensivity);
+            case 4:
+                return role;
+            case 5:
+                return specialty;
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "vmID: " + vmID + "  Source: " + source + "  Age: " + age + "  Sensivity: " + sensivity
+                + "  Role: " + role + "  Specialty: " + specialty;
+    }
+}
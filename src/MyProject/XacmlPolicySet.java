@@ -0,0 +1,506 @@
+package MyProject;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+/**
+ * Immutable, pre-parsed form of MyXACML.xml. The XML is read once and every
+ * Policy / Target / AnyOf / AllOf / Match is turned into plain arrays, each
+ * Match holding the AttributeDesignator id it tests. Evaluating a request
+ * involves no XML; the rule combining algorithm of each policy is honoured so
+ * evaluation stops as soon as the decision is known.
+ *
+ * Policies, and the rules of each policy, are indexed by the first Match of
+ * their target (see {@link TargetIndex}), so a request only reaches the
+ * policies and rules whose first Match it satisfies, and the remaining
+ * Matches are checked on those candidates only.
+ *
+ * Policies directly under the root element are combined with permit-overrides.
+ */
+public class XacmlPolicySet {
+
+    public enum Decision {
+        PERMIT, DENY, NOT_APPLICABLE
+    }
+
+    public enum CombiningAlg {
+        PERMIT_OVERRIDES, DENY_OVERRIDES, FIRST_APPLICABLE;
+
+        static CombiningAlg fromId(String algId) {
+            if (algId == null || algId.isEmpty()) {
+                return PERMIT_OVERRIDES;
+            }
+            if (algId.endsWith("deny-overrides")) {
+                return DENY_OVERRIDES;
+            }
+            if (algId.endsWith("first-applicable")) {
+                return FIRST_APPLICABLE;
+            }
+            return PERMIT_OVERRIDES;
+        }
+    }
+
+    private static final AtomicInteger versions = new AtomicInteger();
+
+    // Policy set denying every request, used when the policy file cannot be read
+    public static final XacmlPolicySet EMPTY = new XacmlPolicySet(new Policy[0]);
+
+    private final Policy[] policies;
+    private final TargetIndex policyIndex;
+    private final int version;
+
+    private XacmlPolicySet(Policy[] policies) {
+        this.policies = policies;
+        Target[] targets = new Target[policies.length];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = policies[i].target;
+        }
+        this.policyIndex = new TargetIndex(targets);
+        this.version = versions.incrementAndGet();
+    }
+
+    public static XacmlPolicySet load(String fileName) throws Exception {
+        // Leading blank lines before the XML declaration are not well-formed XML
+        String xml = new String(Files.readAllBytes(Paths.get(fileName)), StandardCharsets.UTF_8).trim();
+        DocumentBuilder documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        Document document = documentBuilder.parse(new InputSource(new StringReader(xml)));
+        Element root = document.getDocumentElement();
+
+        List<Policy> policies = new ArrayList<Policy>();
+        if (root.getTagName().equals("Policy")) {
+            policies.add(compilePolicy(root));
+        } else {
+            for (Element e : children(root, "Policy")) {
+                policies.add(compilePolicy(e));
+            }
+        }
+        System.out.println("XACML policies loaded from " + fileName + ": " + policies.size());
+        return new XacmlPolicySet(policies.toArray(new Policy[policies.size()]));
+    }
+
+    public int size() {
+        return policies.length;
+    }
+
+    /**
+     * Distinguishes this compiled set from any other one loaded in this JVM.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @param attributes AttributeDesignator id -> value of the request
+     */
+    public Decision evaluate(Map<String, String> attributes) {
+        Rule rule = decide(attributes);
+        return (rule == null) ? Decision.NOT_APPLICABLE : rule.effect;
+    }
+
+    /**
+     * @param attributes AttributeDesignator id -> value of the request
+     * @return the rule deciding the request, or null if no policy applies
+     */
+    public Rule decide(Map<String, String> attributes) {
+        Rule denied = null;
+        for (int i : policyIndex.candidates(attributes)) {
+            Rule rule = policies[i].decide(attributes);
+            if (rule != null) {
+                if (rule.effect == Decision.PERMIT) {
+                    return rule;
+                }
+                if (denied == null) {
+                    denied = rule;
+                }
+            }
+        }
+        return denied;
+    }
+
+    public boolean isPermitted(Map<String, String> attributes) {
+        return evaluate(attributes) == Decision.PERMIT;
+    }
+
+    //------------------------------------------------------------- compiled form
+
+    static final class Match {
+        final String attributeId;
+        final String value;
+        final boolean ignoreCase;
+
+        Match(String attributeId, String value, boolean ignoreCase) {
+            this.attributeId = attributeId;
+            this.value = value;
+            this.ignoreCase = ignoreCase;
+        }
+
+        boolean matches(Map<String, String> attributes) {
+            String v = attributes.get(attributeId);
+            if (v == null) {
+                return false;
+            }
+            return ignoreCase ? value.equalsIgnoreCase(v) : value.equals(v);
+        }
+    }
+
+    /**
+     * Target = AND of AnyOf, AnyOf = OR of AllOf, AllOf = AND of Match. An
+     * empty target matches every request.
+     */
+    static final class Target {
+        static final Target ANY = new Target(new Match[0][][]);
+
+        final Match[][][] anyOf;
+
+        Target(Match[][][] anyOf) {
+            this.anyOf = anyOf;
+        }
+
+        boolean matches(Map<String, String> attributes) {
+            for (Match[][] allOfs : anyOf) {
+                if (!matchesAny(allOfs, attributes)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean matchesAny(Match[][] allOfs, Map<String, String> attributes) {
+            for (Match[] allOf : allOfs) {
+                if (matchesAll(allOf, attributes)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean matchesAll(Match[] allOf, Map<String, String> attributes) {
+            for (Match match : allOf) {
+                if (!match.matches(attributes)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A compiled rule. Its obligations are the OpenFlowRule values listed
+     * under Actions/Action. They are cached with the decision for a policy
+     * enforcement point to read; the simulation does not enforce them.
+     */
+    public static final class Rule {
+        final Target target;
+        final Decision effect;
+        final String[] obligations;
+
+        Rule(Target target, Decision effect, String[] obligations) {
+            this.target = target;
+            this.effect = effect;
+            this.obligations = obligations;
+        }
+
+        public Decision getEffect() {
+            return effect;
+        }
+
+        public String[] getObligations() {
+            return obligations;
+        }
+    }
+
+    static final class Policy {
+        final String policyId;
+        final Target target;
+        final CombiningAlg algorithm;
+        final Rule[] rules;
+        final TargetIndex ruleIndex;
+
+        Policy(String policyId, Target target, CombiningAlg algorithm, Rule[] rules) {
+            this.policyId = policyId;
+            this.target = target;
+            this.algorithm = algorithm;
+            this.rules = rules;
+            Target[] targets = new Target[rules.length];
+            for (int i = 0; i < targets.length; i++) {
+                targets[i] = rules[i].target;
+            }
+            this.ruleIndex = new TargetIndex(targets);
+        }
+
+        /**
+         * @return the rule deciding the request, or null if not applicable
+         */
+        Rule decide(Map<String, String> attributes) {
+            if (!target.matches(attributes)) {
+                return null;
+            }
+
+            Rule result = null;
+            for (int i : ruleIndex.candidates(attributes)) {
+                Rule rule = rules[i];
+                if (!rule.target.matches(attributes)) {
+                    continue;
+                }
+                switch (algorithm) {
+                    case FIRST_APPLICABLE:
+                        return rule;
+                    case DENY_OVERRIDES:
+                        if (rule.effect == Decision.DENY) {
+                            return rule;
+                        }
+                        break;
+                    case PERMIT_OVERRIDES:
+                    default:
+                        if (rule.effect == Decision.PERMIT) {
+                            return rule;
+                        }
+                        break;
+                }
+                result = rule;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Index of a list of targets (of policies or rules) by their first Match.
+     * A target can only match if one AllOf of its first AnyOf matches, hence
+     * if the request has the value tested by the first Match of one of them:
+     * the target is listed under each of these (AttributeDesignator id,
+     * value) pairs. Targets that cannot be indexed this way (empty target,
+     * empty AllOf, case-insensitive first Match) are candidates for every
+     * request.
+     *
+     * Candidates are returned in list order, as the combining algorithms
+     * depend on it, and still have to be matched in full.
+     */
+    static final class TargetIndex {
+        private static final int[] NONE = new int[0];
+
+        /**
+         * Targets listed by the value of one AttributeDesignator
+         */
+        static final class Designator {
+            final String attributeId;
+            final Map<String, int[]> byValue;
+
+            Designator(String attributeId, Map<String, int[]> byValue) {
+                this.attributeId = attributeId;
+                this.byValue = byValue;
+            }
+        }
+
+        final Designator[] designators;
+        final int[] unindexed;
+
+        TargetIndex(Target[] targets) {
+            Map<String, Map<String, List<Integer>>> index = new LinkedHashMap<String, Map<String, List<Integer>>>();
+            List<Integer> unindexedList = new ArrayList<Integer>();
+            for (int i = 0; i < targets.length; i++) {
+                if (!isIndexable(targets[i])) {
+                    unindexedList.add(i);
+                    continue;
+                }
+                for (Match[] allOf : targets[i].anyOf[0]) {
+                    Map<String, List<Integer>> byValue = index.get(allOf[0].attributeId);
+                    if (byValue == null) {
+                        byValue = new HashMap<String, List<Integer>>();
+                        index.put(allOf[0].attributeId, byValue);
+                    }
+                    List<Integer> list = byValue.get(allOf[0].value);
+                    if (list == null) {
+                        list = new ArrayList<Integer>();
+                        byValue.put(allOf[0].value, list);
+                    }
+                    if (list.isEmpty() || list.get(list.size() - 1) != i) {
+                        list.add(i);
+                    }
+                }
+            }
+            designators = new Designator[index.size()];
+            int d = 0;
+            for (Map.Entry<String, Map<String, List<Integer>>> e : index.entrySet()) {
+                Map<String, int[]> byValue = new HashMap<String, int[]>();
+                for (Map.Entry<String, List<Integer>> v : e.getValue().entrySet()) {
+                    byValue.put(v.getKey(), toArray(v.getValue()));
+                }
+                designators[d++] = new Designator(e.getKey(), byValue);
+            }
+            unindexed = toArray(unindexedList);
+        }
+
+        private static boolean isIndexable(Target target) {
+            if (target.anyOf.length == 0 || target.anyOf[0].length == 0) {
+                return false;
+            }
+            for (Match[] allOf : target.anyOf[0]) {
+                if (allOf.length == 0 || allOf[0].ignoreCase) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int[] toArray(List<Integer> list) {
+            int[] array = new int[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.get(i);
+            }
+            return array;
+        }
+
+        /**
+         * @return the indexes of the targets that may match the request, in
+         * increasing order
+         */
+        int[] candidates(Map<String, String> attributes) {
+            // Usually a single list applies, which is returned as is
+            int[] first = (unindexed.length > 0) ? unindexed : null;
+            int[][] lists = null;
+            int n = (first == null) ? 0 : 1;
+            for (Designator designator : designators) {
+                String value = attributes.get(designator.attributeId);
+                int[] list = (value == null) ? null : designator.byValue.get(value);
+                if (list == null) {
+                    continue;
+                }
+                if (n == 0) {
+                    first = list;
+                } else {
+                    if (lists == null) {
+                        lists = new int[designators.length + 1][];
+                        lists[0] = first;
+                    }
+                    lists[n] = list;
+                }
+                n++;
+            }
+            if (n <= 1) {
+                return (n == 0) ? NONE : first;
+            }
+            return merge(lists, n);
+        }
+
+        /**
+         * Merges sorted lists, dropping duplicates (a target listed under
+         * several designators).
+         */
+        private static int[] merge(int[][] lists, int n) {
+            int total = 0;
+            for (int i = 0; i < n; i++) {
+                total += lists[i].length;
+            }
+            int[] merged = new int[total];
+            int[] positions = new int[n];
+            int size = 0;
+            while (true) {
+                int min = Integer.MAX_VALUE;
+                for (int i = 0; i < n; i++) {
+                    if (positions[i] < lists[i].length && lists[i][positions[i]] < min) {
+                        min = lists[i][positions[i]];
+                    }
+                }
+                if (min == Integer.MAX_VALUE) {
+                    break;
+                }
+                merged[size++] = min;
+                for (int i = 0; i < n; i++) {
+                    if (positions[i] < lists[i].length && lists[i][positions[i]] == min) {
+                        positions[i]++;
+                    }
+                }
+            }
+            return (size == total) ? merged : Arrays.copyOf(merged, size);
+        }
+    }
+
+    //------------------------------------------------------------- DOM compilation
+
+    private static Policy compilePolicy(Element e) {
+        List<Rule> rules = new ArrayList<Rule>();
+        for (Element r : children(e, "Rule")) {
+            Decision effect = "Deny".equalsIgnoreCase(r.getAttribute("Effect")) ? Decision.DENY : Decision.PERMIT;
+            List<String> obligations = new ArrayList<String>();
+            for (Element actions : children(r, "Actions")) {
+                for (Element action : children(actions, "Action")) {
+                    for (Element flowRule : children(action, "OpenFlowRule")) {
+                        obligations.add(flowRule.getTextContent().trim());
+                    }
+                }
+            }
+            rules.add(new Rule(compileTarget(r), effect, obligations.toArray(new String[obligations.size()])));
+        }
+        return new Policy(e.getAttribute("PolicyId"), compileTarget(e),
+                CombiningAlg.fromId(e.getAttribute("RuleCombiningAlgId")),
+                rules.toArray(new Rule[rules.size()]));
+    }
+
+    private static Target compileTarget(Element parent) {
+        List<Element> targets = children(parent, "Target");
+        if (targets.isEmpty()) {
+            return Target.ANY;
+        }
+        List<Element> anyOfElements = children(targets.get(0), "AnyOf");
+        if (anyOfElements.isEmpty()) {
+            return Target.ANY;
+        }
+
+        Match[][][] anyOf = new Match[anyOfElements.size()][][];
+        for (int i = 0; i < anyOf.length; i++) {
+            List<Element> allOfElements = children(anyOfElements.get(i), "AllOf");
+            anyOf[i] = new Match[allOfElements.size()][];
+            for (int j = 0; j < anyOf[i].length; j++) {
+                List<Element> matchElements = children(allOfElements.get(j), "Match");
+                anyOf[i][j] = new Match[matchElements.size()];
+                for (int k = 0; k < anyOf[i][j].length; k++) {
+                    anyOf[i][j][k] = compileMatch(matchElements.get(k));
+                }
+            }
+        }
+        return new Target(anyOf);
+    }
+
+    private static Match compileMatch(Element e) {
+        String value = "";
+        String attributeId = "";
+        List<Element> values = children(e, "AttributeValue");
+        if (!values.isEmpty()) {
+            value = values.get(0).getTextContent().trim();
+        }
+        List<Element> designators = children(e, "AttributeDesignator");
+        if (!designators.isEmpty()) {
+            attributeId = designators.get(0).getAttribute("AttributeId").intern();
+        }
+        boolean ignoreCase = e.getAttribute("MatchId").endsWith("string-equal-ignore-case");
+        return new Match(attributeId, value, ignoreCase);
+    }
+
+    private static List<Element> children(Element parent, String tagName) {
+        List<Element> list = new ArrayList<Element>();
+        NodeList nodes = parent.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Node node = nodes.item(i);
+            if (node.getNodeType() == Node.ELEMENT_NODE && ((Element) node).getTagName().equals(tagName)) {
+                list.add((Element) node);
+            }
+        }
+        return list;
+    }
+}
@@ -26,6 +26,7 @@ package it.unipr.netsec.mjcoap.coap.blockwise;
 
 import MyProject.CoapMessage;
 import java.net.InetSocketAddress;
+import java.util.function.Supplier;
 
 import org.zoolu.util.ByteUtils;
 import org.zoolu.util.LoggerLevel;
@@ -56,6 +57,11 @@ class Block1Client {
 		if (BlockwiseTransactionClient.DEBUG) SystemUtils.log(LoggerLevel.TRACE,getClass(),str);
 	}
 
+	/** Logs a debug message, composed only if it is going to be logged. */
+	private void debug(Supplier<String> str) {
+		if (BlockwiseTransactionClient.DEBUG) SystemUtils.log(LoggerLevel.TRACE,getClass(),str);
+	}
+
 	/** Max client-side block size */
 	int client_max_size=0;
 
@@ -146,14 +152,14 @@ class Block1Client {
 		debug("processTransactionResponse()");
 		if (!resp.hasOption(CoapOptionNumber.Block1)) {
 			debug("processTransactionResponse(): no Block1 option");
-			debug("processTransactionResponse(): passed to listener: "+listener);
+			debug(() -> "processTransactionResponse(): passed to listener: "+listener);
 			if (listener!=null) listener.onReceivedResponse(this,resp);
 		}
 		else
 		if (req_body==null || req_body.length==0) {
 			// Note: it should never arrive here, since Block1 is not added in case of empty body in the request..
 			debug("processTransactionResponse(): no request body");
-			debug("processTransactionResponse(): passed to listener: "+listener);
+			debug(() -> "processTransactionResponse(): passed to listener: "+listener);
 			if (listener!=null) listener.onReceivedResponse(this,resp);
 		}
 		else {
@@ -161,7 +167,7 @@ class Block1Client {
 			long block1_seqn=block1_opt.getSequenceNumber();
 			int block1_size=block1_opt.getSize();
 			boolean more=block1_opt.moreBlocks();
-			debug("processTransactionResponse(): block1_seqn="+block1_seqn+", more="+more+", block1_size="+block1_size);
+			debug(() -> "processTransactionResponse(): block1_seqn="+block1_seqn+", more="+more+", block1_size="+block1_size);
 			if (block1_size*block1_seqn==seqn) {
 				debug("processTransactionResponse(): seqn number match");
 				seqn+=block1_size;
@@ -176,7 +182,7 @@ class Block1Client {
 				}
 				else
 				if (seqn<req_body.length) {
-					debug("processTransactionResponse(): only one more block to be sent ("+(req_body.length-(int)seqn)+"B)");
+					debug(() -> "processTransactionResponse(): only one more block to be sent ("+(req_body.length-(int)seqn)+"B)");
 					byte[] block_i=ByteUtils.copy(req_body,(int)seqn,req_body.length-(int)seqn);
 					req=new CoapRequest(req);
 					req.setMessageId(CoapMessage.pickMessageId());
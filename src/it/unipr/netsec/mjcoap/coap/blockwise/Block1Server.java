@@ -24,6 +24,8 @@
 package it.unipr.netsec.mjcoap.coap.blockwise;
 
 
+import java.util.function.Supplier;
+
 import MyProject.CoapMessage;
 import org.zoolu.util.ByteUtils;
 import org.zoolu.util.LoggerLevel;
@@ -48,6 +50,11 @@ class Block1Server {
 	private void debug(String str) {
 		if (BlockwiseTransactionClient.DEBUG) SystemUtils.log(LoggerLevel.TRACE,getClass(),str);
 	}
+
+	/** Logs a debug message, composed only if it is going to be logged. */
+	private void debug(Supplier<String> str) {
+		if (BlockwiseTransactionClient.DEBUG) SystemUtils.log(LoggerLevel.TRACE,getClass(),str);
+	}
 	
 	/** Max server-side block size */
 	int server_max_size=0;
@@ -104,7 +111,7 @@ class Block1Server {
 			if (!req.hasOption(CoapOptionNumber.Block1)) {
 				debug("processReceivedMessage(): no Block1 option");
 				coap_provider.removeListener(this_cp_listener);
-				debug("processReceivedMessage(): passed to listener: "+listener);
+				debug(() -> "processReceivedMessage(): passed to listener: "+listener);
 				if (listener!=null) listener.onReceivedRequest(this,req);
 			}
 			else {
@@ -113,9 +120,9 @@ class Block1Server {
 				int block1_size=block1_opt.getSize();
 				byte[] block=req.getPayload();
 				boolean more=block1_opt.moreBlocks();
-				debug("processReceivedMessage(): block1_seqn="+block1_seqn+", more="+more+", block1_size="+block1_size);
+				debug(() -> "processReceivedMessage(): block1_seqn="+block1_opt.getSequenceNumber()+", more="+block1_opt.moreBlocks()+", block1_size="+block1_opt.getSize());
 				if (server_max_size!=0 && server_max_size<block1_size) {
-					debug("processReceivedMessage(): small server_max_size="+server_max_size);
+					debug(() -> "processReceivedMessage(): small server_max_size="+server_max_size);
 					block1_size=server_max_size;
 					debug("processReceivedMessage(): new block buffer");
 					block_buffer=new BlockBuffer();
@@ -133,7 +140,7 @@ class Block1Server {
 						block_buffer=new BlockBuffer();
 						current_block_size=block1_size;
 					}
-					debug("processReceivedMessage(): set block "+block1_seqn);
+					debug(() -> "processReceivedMessage(): set block "+block1_seqn);
 					if (block!=null) block_buffer.setBlockAt(block,block1_seqn);
 					if (!more) last_block_seqn=block1_seqn;
 				}
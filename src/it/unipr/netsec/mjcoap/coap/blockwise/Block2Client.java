@@ -27,6 +27,7 @@ package it.unipr.netsec.mjcoap.coap.blockwise;
 import MyProject.CoapMessage;
 import java.net.InetSocketAddress;
 import java.util.Vector;
+import java.util.function.Supplier;
 
 import org.zoolu.util.LoggerLevel;
 import org.zoolu.util.SystemUtils;
@@ -55,6 +56,11 @@ class Block2Client {
 		if (BlockwiseTransactionClient.DEBUG) SystemUtils.log(LoggerLevel.TRACE,getClass(),str);
 	}
 
+	/** Logs a debug message, composed only if it is going to be logged. */
+	private void debug(Supplier<String> str) {
+		if (BlockwiseTransactionClient.DEBUG) SystemUtils.log(LoggerLevel.TRACE,getClass(),str);
+	}
+
 	/** Max client-side block size */
 	int client_max_size=0;
 
@@ -158,14 +164,14 @@ class Block2Client {
 	private void processTransactionResponse(CoapTransactionClient tc, CoapResponse resp) {
 		debug("processTransactionResponse()");
 		if (!resp.hasOption(CoapOptionNumber.Block2)) {
-			debug("processTransactionResponse(): passed to listener: "+listener);
+			debug(() -> "processTransactionResponse(): passed to listener: "+listener);
 			if (listener!=null) listener.onReceivedResponse(this,resp);
 		}
 		else {
 			debug("processTransactionResponse(): Block2 option found");
 			byte[] block=resp.getPayload();
 			if (block==null || block.length==0) {
-				debug("processTransactionResponse(): passed to listener: "+listener);
+				debug(() -> "processTransactionResponse(): passed to listener: "+listener);
 				if (listener!=null) listener.onReceivedResponse(this,resp);				
 			}
 			else {
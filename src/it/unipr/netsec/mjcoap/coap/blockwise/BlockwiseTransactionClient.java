@@ -25,6 +25,7 @@ package it.unipr.netsec.mjcoap.coap.blockwise;
 
 
 import java.net.InetSocketAddress;
+import java.util.function.Supplier;
 
 import org.zoolu.util.LoggerLevel;
 import org.zoolu.util.SystemUtils;
@@ -50,6 +51,11 @@ public class BlockwiseTransactionClient {
 		if (DEBUG) SystemUtils.log(LoggerLevel.DEBUG,getClass(),str);
 	}
 
+	/** Logs a debug message, composed only if it is going to be logged. */
+	private void debug(Supplier<String> str) {
+		if (DEBUG) SystemUtils.log(LoggerLevel.DEBUG,getClass(),str);
+	}
+
 	/** Logs a warning message.
 	  * @param str the message to be logged */
 	private void warning(String str) {
@@ -152,7 +158,7 @@ public class BlockwiseTransactionClient {
 	/** When a RST is received for a Confirmable request or transaction timeout expired.
 	 * @param block1_client the block1 client */
 	private void processBlock1ClientFailure(Block1Client block1_client) {
-		debug("processBlock1ClientFailure(): listener: "+listener);
+		debug(() -> "processBlock1ClientFailure(): listener: "+listener);
 		if (listener!=null) listener.onTransactionFailure(this);
 	}
 	
@@ -160,7 +166,7 @@ public class BlockwiseTransactionClient {
 	 * @param block2_client the blockwise transfer client
 	 * @param msg the received CoAP response */
 	private void processReceivedResponse(Block2Client block2_client, CoapResponse resp) {
-		debug("processReceivedResponse(): listener: "+listener);
+		debug(() -> "processReceivedResponse(): listener: "+listener);
 		if (listener!=null) listener.onTransactionResponse(this,resp);
 		listener=null;
 	}
@@ -168,7 +174,7 @@ public class BlockwiseTransactionClient {
 	/** When a RST is received for a Confirmable request or transaction timeout expired.
 	 * @param block2_client the block2 client */
 	private void processBlock2ClientFailure(Block2Client block2_client) {
-		debug("processBlock2ClientFailure(): listener: "+listener);
+		debug(() -> "processBlock2ClientFailure(): listener: "+listener);
 		if (listener!=null) listener.onTransactionFailure(this);
 	}
 
@@ -24,6 +24,8 @@
 package it.unipr.netsec.mjcoap.coap.blockwise;
 
 
+import java.util.function.Supplier;
+
 import org.zoolu.util.LoggerLevel;
 import org.zoolu.util.SystemUtils;
 
@@ -46,6 +48,11 @@ public class BlockwiseTransactionServer {
 		if (DEBUG) SystemUtils.log(LoggerLevel.DEBUG,getClass(),str);
 	}
 
+	/** Logs a debug message, composed only if it is going to be logged. */
+	private void debug(Supplier<String> str) {
+		if (DEBUG) SystemUtils.log(LoggerLevel.DEBUG,getClass(),str);
+	}
+
 	/** Logs a warning message.
 	  * @param str the message to be logged */
 	private void warning(String str) {
@@ -98,7 +105,7 @@ public class BlockwiseTransactionServer {
 	 * @param req the received CoAP request */
 	private synchronized void processReceivedRequest(Block1Server block1_server, CoapRequest req) {
 		this.req=req;
-		debug("processReceivedRequest(): request passed to listener: "+listener);
+		debug(() -> "processReceivedRequest(): request passed to listener: "+listener);
 		if (listener!=null) listener.onReceivedRequest(this,req);
 	}
 	
@@ -92,6 +92,11 @@ public class CoapClient {
      */
     Hashtable<CoapURI, ObserveTransactionClient> observe_clients = new Hashtable<CoapURI, ObserveTransactionClient>();
 
+    /**
+     * Cache of the responses to GET requests, or <i>null</i>
+     */
+    volatile CoapResponseCache response_cache = null;
+
     /**
      * Creates a new CoAP client.
      */
@@ -117,6 +122,16 @@ public class CoapClient {
         coap_provider = new CoapProvider(socket);
     }
 
+    /**
+     * Creates a new CoAP client.
+     *
+     * @param coap_provider the CoAP provider, e.g. one running on a
+     * multi-threaded NIO transport
+     */
+    public CoapClient(CoapProvider coap_provider) {
+        this.coap_provider = coap_provider;
+    }
+
     /**
      * Sets the maximum block size.
      *
@@ -126,6 +141,27 @@ public class CoapClient {
         this.max_block_size = max_block_size;
     }
 
+    /**
+     * Sets the response cache. GET responses are then taken from the cache
+     * while fresh, and revalidated by entity-tag when stale; other requests
+     * remove the cached responses of the target resource. It is disabled by
+     * default.
+     *
+     * @param response_cache the cache, or <i>null</i> for disabling it
+     */
+    public void setResponseCache(CoapResponseCache response_cache) {
+        this.response_cache = response_cache;
+    }
+
+    /**
+     * Gets the response cache.
+     *
+     * @return the cache, or <i>null</i> if disabled
+     */
+    public CoapResponseCache getResponseCache() {
+        return response_cache;
+    }
+
     /**
      * Sends a request for a remote resource.
      *
@@ -177,18 +213,65 @@ public class CoapClient {
      * @param resp_handler the handler of the response
      */
     public void request(CoapRequest req, InetSocketAddress server_soaddr, final CoapResponseHandler resp_handler) {
+        final CoapResponseCache cache = response_cache;
+        final CoapResponseCache.Key cache_key = cache != null ? CoapResponseCache.getKey(req, server_soaddr) : null;
+        CoapRequest sent_req = req;
+        if (cache_key != null) {
+            CoapResponse resp = cache.lookup(cache_key);
+            if (resp != null) {
+                resp_handler.onResponse(req, resp);
+                return;
+            }
+            CoapRequest revalidation = cache.getRevalidationRequest(cache_key, req);
+            if (revalidation != null) {
+                sent_req = revalidation;
+            }
+        } else if (cache != null && !req.isGET()) {
+            CoapURI resource_uri = CoapResponseCache.getResourceURI(req, server_soaddr);
+            if (resource_uri != null) {
+                cache.invalidate(resource_uri);
+            }
+        }
+        send(req, sent_req, server_soaddr, cache, cache_key, resp_handler);
+    }
+
+    /**
+     * Sends a request message, updating the response cache with the response.
+     *
+     * @param req the request message of the application
+     * @param sent_req the request message to be sent: req, or a copy of it
+     * with the ETag option for revalidating a cached response
+     * @param server_soaddr the server address
+     * @param cache the response cache, or <i>null</i>
+     * @param cache_key the cache key of the request, or <i>null</i>
+     * @param resp_handler the handler of the response
+     */
+    private void send(final CoapRequest req, final CoapRequest sent_req, final InetSocketAddress server_soaddr,
+            final CoapResponseCache cache, final CoapResponseCache.Key cache_key, final CoapResponseHandler resp_handler) {
+        final boolean revalidating = sent_req != req;
         BlockwiseTransactionClientListener tc_listener = new BlockwiseTransactionClientListener() {
             @Override
             public void onTransactionResponse(BlockwiseTransactionClient tc, CoapResponse resp) {
-                resp_handler.onResponse(tc.getRequestMessage(), resp);
+                if (cache_key != null) {
+                    CoapResponse cached_resp = cache.update(cache_key, resp);
+                    if (cached_resp == null && revalidating) {
+                        // validated a response that has been removed meanwhile: ask for the representation
+                        send(req, req, server_soaddr, cache, cache_key, resp_handler);
+                        return;
+                    }
+                    if (cached_resp != null) {
+                        resp = cached_resp;
+                    }
+                }
+                resp_handler.onResponse(revalidating ? req : tc.getRequestMessage(), resp);
             }
 
             @Override
             public void onTransactionFailure(BlockwiseTransactionClient tc) {
-                resp_handler.onRequestFailure(tc.getRequestMessage());
+                resp_handler.onRequestFailure(revalidating ? req : tc.getRequestMessage());
             }
         };
-        BlockwiseTransactionClient tc = new BlockwiseTransactionClient(coap_provider, req, server_soaddr, tc_listener);
+        BlockwiseTransactionClient tc = new BlockwiseTransactionClient(coap_provider, sent_req, server_soaddr, tc_listener);
         if (max_block_size > 0) {
             tc.setMaximumBlockSize(max_block_size);
         }
@@ -280,7 +363,10 @@ public class CoapClient {
         synchronized (receiver) {
             request(req, server_soaddr, resp_handler);
             try {
-                receiver.wait();
+                // the response may already be there, if taken from the cache
+                if (receiver.isEmpty()) {
+                    receiver.wait();
+                }
             } catch (InterruptedException e) {
             }
             if (receiver.size() > 0) {
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2026 SecShield_Framework contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND. IN NO EVENT
+ * SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package it.unipr.netsec.mjcoap.coap.client;
+
+
+import java.net.InetSocketAddress;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import MyProject.CoapMessage;
+import it.unipr.netsec.mjcoap.coap.message.CoapRequest;
+import it.unipr.netsec.mjcoap.coap.message.CoapResponse;
+import it.unipr.netsec.mjcoap.coap.message.CoapResponseCode;
+import it.unipr.netsec.mjcoap.coap.option.CoapOptionNumber;
+import it.unipr.netsec.mjcoap.coap.provider.CoapURI;
+
+
+/** Cache of the responses to GET requests, used by {@link CoapClient}.
+  * <p>
+  * Responses are stored by resource URI and accepted format (Accept option). A response is fresh
+  * for the time indicated by its Max-Age option (60 seconds by default, RFC 7252 section 5.10.5);
+  * a stale response that has an entity-tag can be revalidated by sending the request with the ETag option,
+  * and it is used again if the server answers 2.03 Valid.
+  * <p>
+  * The cache holds a maximum number of responses; when it is full, the least recently used one is removed.
+  */
+public class CoapResponseCache {
+
+	/** Default maximum number of responses */
+	public static int DEFAULT_MAX_ENTRIES=256;
+
+	/** Default freshness time, when the response has no Max-Age option [sec] */
+	public static final long DEFAULT_MAX_AGE=60;
+
+
+	/** Responses, in access order */
+	final LinkedHashMap<Key,Entry> entries;
+
+	/** Number of requests served by a fresh response */
+	final AtomicLong hits=new AtomicLong();
+
+	/** Number of requests with no usable response */
+	final AtomicLong misses=new AtomicLong();
+
+	/** Number of requests sent for revalidating a stale response */
+	final AtomicLong revalidations=new AtomicLong();
+
+	/** Number of revalidations confirmed by a 2.03 Valid response */
+	final AtomicLong validations=new AtomicLong();
+
+
+
+	/** Creates a new cache with the default maximum number of responses. */
+	public CoapResponseCache() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+
+	/** Creates a new cache.
+	  * @param max_entries the maximum number of responses */
+	public CoapResponseCache(final int max_entries) {
+		entries=new LinkedHashMap<Key,Entry>(16,0.75f,true) {
+			private static final long serialVersionUID=1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key,Entry> eldest) {
+				return size()>max_entries;
+			}
+		};
+	}
+
+
+	/** Gets the number of stored responses. */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+
+	/** Removes all responses. */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+
+	/** Removes all responses for a given resource, whatever the accepted format.
+	  * @param resource_uri the resource URI */
+	public synchronized void invalidate(CoapURI resource_uri) {
+		for (Iterator<Key> i=entries.keySet().iterator(); i.hasNext(); ) {
+			if (i.next().uri.equals(resource_uri)) i.remove();
+		}
+	}
+
+
+	/** Gets the number of requests that have been served by a fresh response. */
+	public long getHits() {
+		return hits.get();
+	}
+
+
+	/** Gets the number of requests that had no fresh response and could not be revalidated. */
+	public long getMisses() {
+		return misses.get();
+	}
+
+
+	/** Gets the number of requests that have been sent for revalidating a stale response. */
+	public long getRevalidations() {
+		return revalidations.get();
+	}
+
+
+	/** Gets the number of revalidations that have been confirmed by the server (2.03 Valid). */
+	public long getValidations() {
+		return validations.get();
+	}
+
+
+	/** Resets the hit, miss, and revalidation counters. */
+	public void resetStatistics() {
+		hits.set(0);
+		misses.set(0);
+		revalidations.set(0);
+		validations.set(0);
+	}
+
+
+	/** Gets a fresh response.
+	  * @param key the request key
+	  * @return the cached response, or <i>null</i> */
+	CoapResponse lookup(Key key) {
+		Entry entry;
+		synchronized (this) {
+			entry=entries.get(key);
+		}
+		if (entry!=null && entry.isFresh(now())) {
+			hits.incrementAndGet();
+			return new CoapResponse(entry.response);
+		}
+		// else
+		return null;
+	}
+
+
+	/** Gets the request for revalidating a stale response, when {@link #lookup(Key)} found no fresh one.
+	  * The request passed by the application is not modified.
+	  * @param key the request key
+	  * @param req the request
+	  * @return a copy of the request with the ETag option of the stale response, or <i>null</i> if there is no response that can be revalidated */
+	CoapRequest getRevalidationRequest(Key key, CoapRequest req) {
+		Entry entry;
+		synchronized (this) {
+			entry=entries.get(key);
+		}
+		if (entry!=null && entry.etag!=null) {
+			revalidations.incrementAndGet();
+			// own message ID and token, so that req can still be sent if the revalidation fails
+			CoapRequest revalidation=new CoapRequest(req);
+			revalidation.setMessageId(CoapMessage.pickMessageId());
+			revalidation.setToken(CoapMessage.pickToken());
+			revalidation.addEntityTag(entry.etag);
+			return revalidation;
+		}
+		// else
+		misses.incrementAndGet();
+		return null;
+	}
+
+
+	/** Processes the response to a request sent after {@link #lookup(Key)}.
+	  * @param key the request key
+	  * @param resp the received response
+	  * @return the response to be passed to the application, or <i>null</i> if it is a 2.03 Valid
+	  * for a response that is no longer in the cache (the request has then to be sent again without ETag) */
+	CoapResponse update(Key key, CoapResponse resp) {
+		long now=now();
+		CoapResponseCode code=resp.getResponseCode();
+		if (code==CoapResponseCode._2_03_Valid) {
+			byte[] etag=resp.getEntityTag();
+			Entry entry;
+			synchronized (this) {
+				entry=entries.get(key);
+			}
+			if (entry!=null && etag!=null && Arrays.equals(etag,entry.etag)) {
+				validations.incrementAndGet();
+				Entry valid=new Entry(entry.response,etag,now+getMaxAge(resp)*1000);
+				synchronized (this) {
+					entries.put(key,valid);
+				}
+				return new CoapResponse(entry.response);
+			}
+			// else
+			return null;
+		}
+		// else
+		if (code==CoapResponseCode._2_05_Content) {
+			CoapResponse response=new CoapResponse(resp);
+			Entry entry=new Entry(response,resp.getEntityTag(),now+getMaxAge(resp)*1000);
+			synchronized (this) {
+				entries.put(key,entry);
+			}
+		}
+		else synchronized (this) {
+			entries.remove(key);
+		}
+		return resp;
+	}
+
+
+	/** Gets the key of a request.
+	  * @param req the request
+	  * @param server_soaddr the server address
+	  * @return the key, or <i>null</i> if the response cannot be cached */
+	static Key getKey(CoapRequest req, InetSocketAddress server_soaddr) {
+		if (!req.isGET() || req.hasOption(CoapOptionNumber.Observe) || req.hasOption(CoapOptionNumber.ETag)) return null;
+		// else
+		CoapURI uri=getResourceURI(req,server_soaddr);
+		return uri!=null? new Key(uri,req.getAcceptedFormat()) : null;
+	}
+
+
+	/** Gets the URI of the resource targeted by a request.
+	  * Missing host and port are taken from the server address.
+	  * @param req the request
+	  * @param server_soaddr the server address
+	  * @return the URI, or <i>null</i> if it is not valid */
+	static CoapURI getResourceURI(CoapRequest req, InetSocketAddress server_soaddr) {
+		try {
+			CoapURI uri=req.getRequestUri();
+			if (server_soaddr==null || (uri.getHost()!=null && uri.getPort()>0)) return uri;
+			// else
+			String host=uri.getHost()!=null? uri.getHost() : server_soaddr.getHostString();
+			int port=uri.getPort()>0? uri.getPort() : server_soaddr.getPort();
+			return new CoapURI(host,port,uri.getPath(),uri.getQuery(),false);
+		}
+		catch (URISyntaxException e) {
+			return null;
+		}
+	}
+
+
+	/** Gets the freshness time of a response [sec]. */
+	private static long getMaxAge(CoapResponse resp) {
+		long max_age=resp.getMaxAge();
+		return max_age>=0? max_age : DEFAULT_MAX_AGE;
+	}
+
+
+	/** Gets the current time [millisec]. */
+	private static long now() {
+		return System.nanoTime()/1000000L;
+	}
+
+
+
+	/** Cache key. */
+	static final class Key {
+		final CoapURI uri;
+		final int accept;
+
+		Key(CoapURI uri, int accept) {
+			this.uri=uri;
+			this.accept=accept;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) return false;
+			Key key=(Key)obj;
+			return accept==key.accept && uri.equals(key.uri);
+		}
+
+		@Override
+		public int hashCode() {
+			return uri.hashCode()*31+accept;
+		}
+	}
+
+
+
+	/** Cached response. */
+	static final class Entry {
+		final CoapResponse response;
+		final byte[] etag;
+		final long expires;
+
+		Entry(CoapResponse response, byte[] etag, long expires) {
+			this.response=response;
+			this.etag=etag;
+			this.expires=expires;
+		}
+
+		boolean isFresh(long now) {
+			return now<expires;
+		}
+	}
+
+}
@@ -192,7 +192,10 @@ public class CoapRequest extends CoapMessage {
 		CoapOption[] path_opt=getOptions(CoapOptionNumber.UriPath);
 		if (path_opt!=null) {
 			StringBuffer sb=new StringBuffer();
-			for (int i=0; i<path_opt.length; i++) sb.append('/').append(path_opt[i].getValueAsString());
+			for (int i=0; i<path_opt.length; i++) {
+				sb.append('/');
+				if (!path_opt[i].isEmpty()) sb.append(path_opt[i].getValueAsString());
+			}
 			return sb.toString();
 		}
 		else return null;
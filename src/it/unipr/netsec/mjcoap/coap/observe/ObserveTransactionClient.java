@@ -27,7 +27,6 @@ package it.unipr.netsec.mjcoap.coap.observe;
 import MyProject.CoapMessage;
 import org.zoolu.util.LoggerLevel;
 import org.zoolu.util.SystemUtils;
-import org.zoolu.util.Logger;
 
 import it.unipr.netsec.mjcoap.coap.message.*;
 import it.unipr.netsec.mjcoap.coap.provider.*;
@@ -200,8 +199,7 @@ public class ObserveTransactionClient {
 	/** Logs a message.
 	 * @param str the message to be logged */
 	private void log(String str) {
-		Logger logger=SystemUtils.getDefaultLogger();
-		if (logger!=null) logger.log(LoggerLevel.DEBUG,getClass(),str);
+		SystemUtils.log(LoggerLevel.DEBUG,getClass(),str);
 	}
 
 }
@@ -46,6 +46,9 @@ import it.unipr.netsec.mjcoap.coap.transmission.CoapReliableTransmissionListener
  * where components (called "observers") register at.
  * <p>
  * It implements the observer model according to the RFC 7641 "Observing Resources in CoAP".
+ * <p>
+ * Notifications are coalesced (RFC 7641, section 4.5.2): while a confirmable notification has not been acknowledged,
+ * new notifications are not sent; only the latest one is kept, and it is sent when the acknowledgement is received.
  */
 public class ObserveTransactionServer {
 	
@@ -89,6 +92,12 @@ public class ObserveTransactionServer {
 	
 	/** Whether the response has been sent */
 	boolean response_sent=false;
+
+	/** Confirmable notification not acknowledged yet, or null */
+	CoapReliableTransmission in_flight=null;
+
+	/** Latest notification waiting for the acknowledgement of the one in flight, or null */
+	CoapResponse pending=null;
 	
 	
 	/** Creates a new CoAP observe server.
@@ -103,7 +112,7 @@ public class ObserveTransactionServer {
 		this_rt_listener=new CoapReliableTransmissionListener() {
 			@Override
 			public void onTransmissionAcknowledgement(CoapReliableTransmission reliable_transmission, CoapMessage ack) {
-				// do nothing
+				processAcknowledgement(reliable_transmission);
 			}
 			@Override
 			public void onTransmissionReject(CoapReliableTransmission reliable_transmission, CoapMessage rst) {
@@ -207,32 +216,83 @@ public class ObserveTransactionServer {
 	 * @param resp the message notifying the new resource state */
 	public void notify(CoapResponse resp) {
 		debug("notify()");
+		CoapResponse notification=prepareNotify(resp,-1);
+		if (notification!=null) coap_provider.send(notification,req.getRemoteSoAddress());
+	}
+
+	
+	/** Prepares a notification of a new resource state, that is then sent by the caller,
+	 * e.g. in a batch with the notifications to other observers.
+	 * If a confirmable notification is in flight, the new one is kept for being sent later, and nothing has to be sent now.
+	 * @param resp the message notifying the new resource state
+	 * @param seqn the observe sequence number that is already set in the message (e.g. in an encoded body shared with other observers),
+	 *  or -1; a new sequence number is set if it is not given or it is not newer than the last one
+	 * @return the message to be sent, or <i>null</i> */
+	public synchronized CoapResponse prepareNotify(CoapResponse resp, int seqn) {
 		this.resp=resp;
 		CoapResponseCode response_code=resp.getResponseCode();
 		if (response_code.isSuccess()) {
-			seqn=(seqn+1)&0xFFFFFF;
-			resp.setObserveSequenceNumber(seqn);
-			sendNotify(resp);
-		}
-		else {
-			sendNotify(resp);
-			terminate();
+			if (seqn>=0 && isNewer(seqn,this.seqn)) this.seqn=seqn;
+			else {
+				this.seqn=(this.seqn+1)&0xFFFFFF;
+				resp.setObserveSequenceNumber(this.seqn);
+			}
+			if (in_flight!=null) {
+				debug("prepareNotify(): notification in flight: coalesced");
+				pending=resp;
+				return null;
+			}
+			// else
+			startNotify(resp);
+			return resp;
 		}
+		// else
+		pending=null;
+		startNotify(resp);
+		terminate();
+		return resp;
 	}
 
 	
-	/** Sends a notify message.
-	 * @param resp the response message to be sent */
-	private void sendNotify(CoapResponse resp) {
-		//if (resp.isCON()) new Block2Server(coap_provider,req,server_max_size).respond(resp);
-		if (resp.isCON()) new CoapReliableTransmission(coap_provider,req.getRemoteSoAddress(),this_rt_listener).send(resp);
-		else coap_provider.send(resp,req.getRemoteSoAddress());
+	/** Starts the reliable transmission of a confirmable notification.
+	 * @param resp the notification, that is then sent by the caller */
+	private void startNotify(CoapResponse resp) {
+		if (resp.isCON()) {
+			in_flight=new CoapReliableTransmission(coap_provider,req.getRemoteSoAddress(),this_rt_listener);
+			in_flight.start(resp);
+		}
+	}
+
+
+	/** When a confirmable notification has been acknowledged. Sends the pending notification, if any. */
+	private void processAcknowledgement(CoapReliableTransmission reliable_transmission) {
+		CoapResponse notification;
+		synchronized (this) {
+			if (reliable_transmission!=in_flight) return;
+			// else
+			in_flight=null;
+			notification=pending;
+			pending=null;
+			if (notification==null) return;
+			// else
+			startNotify(notification);
+		}
+		coap_provider.send(notification,req.getRemoteSoAddress());
+	}
+
+
+	/** Whether an observe sequence number is newer than another one (RFC 7641, section 3.4). */
+	private static boolean isNewer(int seqn, int last_seqn) {
+		return (last_seqn<seqn && seqn-last_seqn<(1<<23)) || (last_seqn>seqn && last_seqn-seqn>(1<<23));
 	}
 
 
 	/** Terminates. */
 	private void terminate() {
 		debug("terminate()");
+		synchronized (this) {
+			pending=null;
+		}
 		coap_provider.removeListener(this_cp_listener);
 		if (listener!=null) listener.onObserveServerTerminated(this);
 	}
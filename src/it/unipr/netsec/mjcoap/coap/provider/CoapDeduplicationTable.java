@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2026 SecShield_Framework contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND. IN NO EVENT
+ * SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package it.unipr.netsec.mjcoap.coap.provider;
+
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/** Message deduplication table.
+ * It keeps, for each confirmable message received from a remote end-point, the bytes of the message
+ * (ACK, or piggybacked response) that has been sent back, so that it can be sent again when a duplicate is received.
+ * <p>
+ * Entries are not expired one by one. The table is formed by a few generations, each one being a hash table:
+ * new entries go in the current generation, and every <i>lifetime/(generations-1)</i> the oldest generation
+ * is cleared and becomes the current one. Hence an entry is kept for at least the lifetime, and at most
+ * for <i>lifetime*generations/(generations-1)</i>.
+ * Generations are rotated by the threads that access the table, when the rotation time has passed.
+ * <p>
+ * When the table reaches its maximum number of entries, the oldest generations are dropped in advance.
+ */
+public class CoapDeduplicationTable {
+
+	/** Default lifetime of the entries [millisec] (EXCHANGE_LIFETIME) */
+	public static long DEFAULT_LIFETIME=100000;
+
+	/** Default number of generations */
+	public static int DEFAULT_GENERATIONS=4;
+
+	/** Default maximum number of entries */
+	public static int DEFAULT_MAX_ENTRIES=200000;
+
+	/** Generations */
+	final ConcurrentHashMap<CoapId,byte[]>[] generations;
+
+	/** Index of the current generation */
+	volatile int current=0;
+
+	/** Maximum number of entries */
+	final int max_entries;
+
+	/** Entry lifetime [millisec] */
+	volatile long lifetime;
+
+	/** Time of the next rotation [millisec] */
+	volatile long next_rotation;
+
+
+
+	/** Creates a new table with default lifetime, number of generations, and maximum number of entries. */
+	public CoapDeduplicationTable() {
+		this(DEFAULT_LIFETIME,DEFAULT_GENERATIONS,DEFAULT_MAX_ENTRIES);
+	}
+
+
+	/** Creates a new table.
+	 * @param lifetime the minimum time the entries are kept, in milliseconds
+	 * @param generations the number of generations (at least 2)
+	 * @param max_entries the maximum number of entries */
+	public CoapDeduplicationTable(long lifetime, int generations, int max_entries) {
+		@SuppressWarnings("unchecked")
+		ConcurrentHashMap<CoapId,byte[]>[] tables=(ConcurrentHashMap<CoapId,byte[]>[])new ConcurrentHashMap<?,?>[Math.max(generations,2)];
+		for (int i=0; i<tables.length; i++) tables[i]=new ConcurrentHashMap<CoapId,byte[]>();
+		this.generations=tables;
+		this.max_entries=max_entries;
+		this.lifetime=lifetime;
+		next_rotation=now()+getRotationTime();
+	}
+
+
+	/** Gets the entry lifetime.
+	 * @return the minimum time the entries are kept, in milliseconds */
+	public long getLifetime() {
+		return lifetime;
+	}
+
+
+	/** Sets the entry lifetime. It applies from the next rotation.
+	 * @param lifetime the minimum time the entries are kept, in milliseconds */
+	public void setLifetime(long lifetime) {
+		this.lifetime=lifetime;
+	}
+
+
+	/** Gets the number of entries.
+	 * @return the number of entries, including the ones that have been replaced in a newer generation */
+	public int size() {
+		long size=0;
+		for (ConcurrentHashMap<CoapId,byte[]> generation : generations) size+=generation.mappingCount();
+		return (int)Math.min(size,Integer.MAX_VALUE);
+	}
+
+
+	/** Adds an entry.
+	 * @param remote_soaddr the socket address of the remote end-point
+	 * @param message_id the message-id of the received message
+	 * @param data the bytes of the message to be sent for duplicates, or an empty array if duplicates have to be silently discarded */
+	public void put(InetSocketAddress remote_soaddr, int message_id, byte[] data) {
+		long now=now();
+		if (now>=next_rotation) rotate(now,false);
+		if (size()>=max_entries) rotate(now,true);
+		generations[current].put(CoapId.getReliableTransmissionId(remote_soaddr,message_id),data);
+	}
+
+
+	/** Gets an entry.
+	 * @param remote_soaddr the socket address of the remote end-point
+	 * @param message_id the message-id of the received message
+	 * @return the bytes of the message to be sent, or <i>null</i> if the message is not a duplicate */
+	public byte[] get(InetSocketAddress remote_soaddr, int message_id) {
+		return get(CoapId.getReliableTransmissionId(remote_soaddr,message_id));
+	}
+
+
+	/** Gets an entry.
+	 * @param id the reliable transmission identifier of the received message
+	 * @return the bytes of the message to be sent, or <i>null</i> if the message is not a duplicate */
+	byte[] get(CoapId id) {
+		long now=now();
+		if (now>=next_rotation) rotate(now,false);
+		int n=generations.length;
+		int index=current;
+		for (int i=0; i<n; i++) {
+			byte[] data=generations[(index-i+n)%n].get(id);
+			if (data!=null) return data;
+		}
+		return null;
+	}
+
+
+	/** Removes all entries. */
+	public synchronized void clear() {
+		for (ConcurrentHashMap<CoapId,byte[]> generation : generations) generation.clear();
+	}
+
+
+	/** Rotates the generations.
+	 * @param now the current time
+	 * @param force whether generations have to be dropped now, for making room */
+	private synchronized void rotate(long now, boolean force) {
+		if (force) {
+			// other threads may have already made room
+			for (int i=0; i<generations.length && size()>=max_entries; i++) nextGeneration();
+			return;
+		}
+		// else
+		long rotation_time=getRotationTime();
+		for (int i=0; now>=next_rotation && i<generations.length; i++) {
+			nextGeneration();
+			next_rotation+=rotation_time;
+		}
+		if (now>=next_rotation) next_rotation=now+rotation_time;
+	}
+
+
+	/** Clears the oldest generation and makes it the current one. */
+	private void nextGeneration() {
+		int next=(current+1)%generations.length;
+		generations[next].clear();
+		current=next;
+	}
+
+
+	/** Gets the time between two rotations [millisec]. */
+	private long getRotationTime() {
+		return Math.max(lifetime/(generations.length-1),1);
+	}
+
+
+	/** Gets the current time [millisec]. */
+	private static long now() {
+		return System.nanoTime()/1000000L;
+	}
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2026 SecShield_Framework contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND. IN NO EVENT
+ * SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package it.unipr.netsec.mjcoap.coap.provider;
+
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.zoolu.util.LoggerLevel;
+import org.zoolu.util.SystemUtils;
+
+
+/** Runs tasks on an {@link Executor} while keeping the tasks with the same key in order.
+ * <p>
+ * Tasks with different keys may run concurrently. Tasks with the same key run one at a time,
+ * in the order they were submitted: while a task of a key is running, further tasks of the same key
+ * are queued and then run by the same executor thread, one after the other.
+ * <p>
+ * It is used by {@link CoapProvider} to run the listeners of each inbound exchange, keyed
+ * by remote socket address and token, off the receiver thread, so that a listener can block
+ * (e.g. for an access-control check or an upstream request) without stalling the other exchanges.
+ */
+public class CoapDispatcher implements Executor {
+
+	/** Executor running the tasks */
+	Executor executor;
+
+	/** Pending tasks of the keys having a running task (HashMap<Object,ArrayDeque<Runnable>>) */
+	HashMap<Object,ArrayDeque<Runnable>> pending=new HashMap<Object,ArrayDeque<Runnable>>();
+
+
+
+	/** Creates a new dispatcher.
+	 * @param executor the executor running the tasks */
+	public CoapDispatcher(Executor executor) {
+		this.executor=executor;
+	}
+
+
+	/** Creates a new dispatcher running each task on its own thread.
+	 * A virtual thread per task is used when the JVM supports it (Java 21 or later),
+	 * otherwise a cached pool of daemon threads. */
+	public CoapDispatcher() {
+		this(newThreadPerTaskExecutor());
+	}
+
+
+	/** Creates a virtual thread per task executor, if supported, otherwise a cached pool of daemon threads. */
+	public static ExecutorService newThreadPerTaskExecutor() {
+		try {
+			// Executors.newVirtualThreadPerTaskExecutor() is available since Java 21
+			Method m=Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService)m.invoke(null);
+		}
+		catch (Exception e) {
+			final AtomicInteger count=new AtomicInteger();
+			return Executors.newCachedThreadPool(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t=new Thread(r,"CoapDispatcher-"+count.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+	}
+
+
+	/** Gets the executor running the tasks. */
+	public Executor getExecutor() {
+		return executor;
+	}
+
+
+	/** Runs a task with no ordering constraint. */
+	@Override
+	public void execute(Runnable task) {
+		executor.execute(task);
+	}
+
+
+	/** Runs a task after all the tasks previously submitted with the same key.
+	 * If the executor rejects the task (e.g. after shutdown), the key is dropped, together with the tasks
+	 * queued for it in the meantime, and the exception is thrown.
+	 * @param key the ordering key
+	 * @param task the task */
+	public void execute(final Object key, final Runnable task) {
+		synchronized (pending) {
+			ArrayDeque<Runnable> queue=pending.get(key);
+			if (queue!=null) {
+				queue.add(task);
+				return;
+			}
+			// else
+			pending.put(key,new ArrayDeque<Runnable>());
+		}
+		try {
+			executor.execute(new Runnable() {
+				public void run() {
+					runAll(key,task);
+				}
+			});
+		}
+		catch (RuntimeException e) {
+			// nothing would drain the key: later tasks of the same key would be queued forever
+			synchronized (pending) {
+				pending.remove(key);
+			}
+			throw e;
+		}
+	}
+
+
+	/** Runs the task and then the tasks queued for the same key in the meantime. */
+	private void runAll(Object key, Runnable task) {
+		while (task!=null) {
+			try {  task.run();  }
+			catch (Throwable e) {
+				// the key must be drained even if the task fails
+				SystemUtils.log(LoggerLevel.WARNING,CoapDispatcher.class,"task "+task+" failed: "+e);
+			}
+			synchronized (pending) {
+				task=pending.get(key).poll();
+				if (task==null) pending.remove(key);
+			}
+		}
+	}
+
+
+	/** Gets the number of keys having a running task. */
+	public int getActiveKeys() {
+		synchronized (pending) {
+			return pending.size();
+		}
+	}
+
+}
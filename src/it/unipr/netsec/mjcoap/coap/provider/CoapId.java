@@ -24,12 +24,16 @@
 package it.unipr.netsec.mjcoap.coap.provider;
 
 
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.util.Arrays;
 
 import org.zoolu.util.ByteUtils;
 import org.zoolu.util.Identifier;
 
+import MyProject.CoapMessage;
 import it.unipr.netsec.mjcoap.coap.message.CoapRequestMethod;
+import it.unipr.netsec.mjcoap.coap.option.CoapOptionNumber;
 
 
 /** CoapId identifies a given CoAP message context.
@@ -42,6 +46,11 @@ import it.unipr.netsec.mjcoap.coap.message.CoapRequestMethod;
  * <li>message type ({@link #REQUEST} or response)</li>
  * <li>{@link #ANY}</li>
  * </ul>
+ * <p>
+ * Apart from {@link #REQUEST} and {@link #ANY}, identifiers have a compact binary value
+ * (context type, remote address and port, message-id, token, method, or request URI path)
+ * with a precomputed hash code, that is used for comparing them.
+ * Their string value is built only when required (e.g. for logging).
  */
 public class CoapId extends Identifier {
 	
@@ -54,6 +63,31 @@ public class CoapId extends Identifier {
 	/** CoapId for capturing any message. */
 	public static final CoapId ANY=new CoapId("ANY"){};
 
+	/** Reliable transmission context */
+	static final byte TRANSMISSION=1;
+
+	/** Transaction context */
+	static final byte TRANSACTION=2;
+
+	/** Blockwise transfer context */
+	static final byte TRANSFER=3;
+
+	/** Method context */
+	static final byte METHOD=4;
+
+	/** Binary value, or <i>null</i> for identifiers having only a string value.
+	 * It is formed by the context type, followed by the context fields, that are: <br>
+	 * for transmission, transaction, and transfer contexts, the address length, address, and port of the remote end-point,
+	 * followed by the message-id, the token, or the method code and request URI path, respectively; <br>
+	 * for method contexts, the method code. */
+	byte[] key=null;
+
+	/** Length of the binary value */
+	int key_len=0;
+
+	/** Hash code of the binary value */
+	int hash=0;
+
 
 	/** Creates a void CoapId. */
 	protected CoapId() {
@@ -70,6 +104,11 @@ public class CoapId extends Identifier {
 	 * @param id a CoAP identifier */
 	protected CoapId(CoapId id) {
 		super(id);
+		if (id.key!=null) {
+			key=Arrays.copyOf(id.key,id.key_len);
+			key_len=id.key_len;
+			hash=id.hash;
+		}
 	}
 
 	/** Gets a reliable transmission identifier.
@@ -77,7 +116,9 @@ public class CoapId extends Identifier {
 	 * @param message_id the message-id
 	 * @return the string value for a reliable transmission identifier */
 	public static CoapId getReliableTransmissionId(InetSocketAddress remote_soaddr, int message_id) {
-		return new CoapId("transmission-messageid-"+endpoint(remote_soaddr)+'-'+message_id);
+		Lookup l=new Lookup();
+		l.setEndpoint(remote_soaddr);
+		return new CoapId(l.transmission(message_id));
 	}
 
 	
@@ -86,7 +127,9 @@ public class CoapId extends Identifier {
 	 * @param token the message token
 	 * @return the string value for a transaction identifier */
 	public static CoapId getTransactionId(InetSocketAddress remote_soaddr, byte[] token) {
-		return new CoapId("transaction-token-"+endpoint(remote_soaddr)+'-'+ByteUtils.asHex(token));
+		Lookup l=new Lookup();
+		l.setEndpoint(remote_soaddr);
+		return new CoapId(l.transaction(token));
 	}
 
 	
@@ -96,7 +139,9 @@ public class CoapId extends Identifier {
 	 * @param request_uri the request URI
 	 * @return the transfer identifier */
 	public static CoapId getTransferId(InetSocketAddress remote_soaddr, CoapRequestMethod method, String request_uri) {
-		return new CoapId("blockwise-transfer-"+endpoint(remote_soaddr)+'-'+method.getName()+request_uri);
+		Lookup l=new Lookup();
+		l.setEndpoint(remote_soaddr);
+		return new CoapId(l.transfer(method.getCode(),(request_uri!=null? request_uri : "").getBytes()));
 	}
 
 	
@@ -104,18 +149,197 @@ public class CoapId extends Identifier {
 	 * @param method the CoAP method
      * @return the method identifier */
 	public static CoapId getMethodId(CoapRequestMethod method) {
-		return new CoapId("method-"+method.getName());
+		return new CoapId(new Lookup().method(method.getCode()));
 	}
 
-	
-	/** Gets a string representation of an end-point.
-	 * @param remote_soaddr the socket address of the remote end-point
+
+	/** Gets the lookup identifier of the current thread.
+	 * @return an identifier that can be reused for looking up the listeners of a received message */
+	static Lookup lookup() {
+		return LOOKUP.get();
+	}
+
+
+	/** Whether this object equals to an other object.
+	 * @param obj the other object that is compared to
+	 * @return true if the two objects are equal */
+	@Override
+	public boolean equals(Object obj) {
+		if (this==obj) return true;
+		if (!(obj instanceof CoapId)) return false;
+		// else
+		CoapId i=(CoapId)obj;
+		if (key==null || i.key==null) return key==null && i.key==null && id.equals(i.id);
+		// else
+		return hash==i.hash && Arrays.equals(key,0,key_len,i.key,0,i.key_len);
+	}
+
+
+	/** Gets an int hash-code for this object.
+	 * @return the hash-code */
+	@Override
+	public int hashCode() {
+		return key!=null? hash : id.hashCode();
+	}
+
+
+	/** Gets a string value for this object.
+	 * @return the string */
+	@Override
+	public String toString() {
+		if (id==null && key!=null) id=describe();
+		return id;
+	}
+
+
+	/** Gets the string value of a binary identifier.
+	 * @return the string */
+	String describe() {
+		switch (key[0]) {
+			case TRANSMISSION : return "transmission-messageid-"+endpoint()+'-'+(((key[key_len-2]&0xff)<<8)|(key[key_len-1]&0xff));
+			case TRANSACTION : return "transaction-token-"+endpoint()+'-'+ByteUtils.asHex(key,endpointEnd(),key_len-endpointEnd());
+			case TRANSFER : {
+				int off=endpointEnd();
+				return "blockwise-transfer-"+endpoint()+'-'+CoapRequestMethod.getMethodByCode(key[off]&0xff).getName()+new String(key,off+1,key_len-off-1);
+			}
+			case METHOD : return "method-"+CoapRequestMethod.getMethodByCode(key[1]&0xff).getName();
+		}
+		return "unknown-"+ByteUtils.asHex(key,0,key_len);
+	}
+
+
+	/** Gets the offset of the first byte following the end-point within the binary value. */
+	private int endpointEnd() {
+		return 2+(key[1]&0xff)+2;
+	}
+
+
+	/** Gets a string representation of the end-point within the binary value.
 	 * @return the concatenation of IP address, a colon ':', and port number */
-	private static String endpoint(InetSocketAddress remote_soaddr) {
-		String host=remote_soaddr.getAddress().getHostAddress();
-		int port=remote_soaddr.getPort();
-		if (port<=0) port=CoapProvider.DEFAUL_PORT;
+	private String endpoint() {
+		int addr_len=key[1]&0xff;
+		String host;
+		try {
+			host=InetAddress.getByAddress(Arrays.copyOfRange(key,2,2+addr_len)).getHostAddress();
+		}
+		catch (Exception e) {  host=new String(key,2,addr_len);  }
+		int port=((key[2+addr_len]&0xff)<<8)|(key[3+addr_len]&0xff);
 		return host+':'+port;
 	}
 
+
+	/** Computes the hash code of a binary value. */
+	private static int hash(byte[] key, int len) {
+		int h=1;
+		for (int i=0; i<len; i++) h=31*h+key[i];
+		return h;
+	}
+
+
+
+	/** Lookup identifiers of the threads */
+	private static final ThreadLocal<Lookup> LOOKUP=new ThreadLocal<Lookup>() {
+		@Override
+		protected Lookup initialValue() {
+			return new Lookup();
+		}
+	};
+
+
+	/** Identifier that is rewritten for looking up the listeners of a received message without allocating objects.
+	 * It must not be used as a listener key; use {@link CoapId#CoapId(CoapId)} for getting an immutable copy. */
+	static final class Lookup extends CoapId {
+
+		/** Remote end-point and its binary value, that are kept at the beginning of the key */
+		InetAddress addr=null;
+		int port=-1;
+		int endpoint_len=0;
+		
+		Lookup() {
+			key=new byte[64];
+		}
+
+		/** Sets the remote end-point.
+		 * @param remote_soaddr the socket address of the remote end-point */
+		void setEndpoint(InetSocketAddress remote_soaddr) {
+			int port=remote_soaddr.getPort();
+			if (port<=0) port=CoapProvider.DEFAUL_PORT;
+			InetAddress addr=remote_soaddr.getAddress();
+			if (addr!=null && addr.equals(this.addr) && port==this.port) return;
+			// else
+			byte[] addr_bytes=addr!=null? addr.getAddress() : remote_soaddr.getHostString().getBytes();
+			ensureCapacity(4+addr_bytes.length+8);
+			key[1]=(byte)addr_bytes.length;
+			System.arraycopy(addr_bytes,0,key,2,addr_bytes.length);
+			key[2+addr_bytes.length]=(byte)(port>>8);
+			key[3+addr_bytes.length]=(byte)port;
+			this.addr=addr;
+			this.port=port;
+			endpoint_len=4+addr_bytes.length;
+		}
+
+		/** Sets a reliable transmission identifier for the current end-point. */
+		Lookup transmission(int message_id) {
+			key[0]=TRANSMISSION;
+			key[endpoint_len]=(byte)(message_id>>8);
+			key[endpoint_len+1]=(byte)message_id;
+			return done(endpoint_len+2);
+		}
+
+		/** Sets a transaction identifier for the current end-point. */
+		Lookup transaction(byte[] token) {
+			ensureCapacity(endpoint_len+token.length);
+			key[0]=TRANSACTION;
+			System.arraycopy(token,0,key,endpoint_len,token.length);
+			return done(endpoint_len+token.length);
+		}
+
+		/** Sets a transfer identifier for the current end-point.
+		 * @param method_code the method code
+		 * @param request_uri the request URI path */
+		Lookup transfer(int method_code, byte[] request_uri) {
+			ensureCapacity(endpoint_len+1+request_uri.length);
+			key[0]=TRANSFER;
+			key[endpoint_len]=(byte)method_code;
+			System.arraycopy(request_uri,0,key,endpoint_len+1,request_uri.length);
+			return done(endpoint_len+1+request_uri.length);
+		}
+
+		/** Sets a transfer identifier for the current end-point, taking the request URI path from the Uri-Path options of a message.
+		 * @param method_code the method code
+		 * @param msg the request message */
+		Lookup transfer(int method_code, CoapMessage msg) {
+			key[0]=TRANSFER;
+			key[endpoint_len]=(byte)method_code;
+			int len;
+			while ((len=msg.getOptionValues(CoapOptionNumber.UriPath,(byte)'/',key,endpoint_len+1))<0) ensureCapacity(key.length*2);
+			return done(endpoint_len+1+len);
+		}
+
+		/** Sets a method identifier. */
+		Lookup method(int method_code) {
+			key[0]=METHOD;
+			key[1]=(byte)method_code;
+			addr=null;
+			port=-1;
+			endpoint_len=0;
+			return done(2);
+		}
+
+		private Lookup done(int len) {
+			key_len=len;
+			hash=hash(key,len);
+			return this;
+		}
+
+		private void ensureCapacity(int len) {
+			if (key.length<len) key=Arrays.copyOf(key,Math.max(len,key.length*2));
+		}
+
+		@Override
+		public String toString() {
+			return describe();
+		}
+	}
+
 }
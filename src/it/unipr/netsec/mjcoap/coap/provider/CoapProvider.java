@@ -31,13 +31,18 @@ import org.zoolu.util.SystemUtils;
 
 import it.unipr.netsec.mjcoap.coap.analyzer.CoapProtocolAnalyzer;
 import it.unipr.netsec.mjcoap.coap.message.*;
+import it.unipr.netsec.mjcoap.coap.transmission.CoapReliableReception;
 
-import java.util.Hashtable;
+import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.util.Enumeration;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 
 /** CoAP message communication service (i.e. the CoAP messaging layer) for sending and receiving CoAP messages.
@@ -63,6 +68,19 @@ import java.util.Enumeration;
  * That is, if a listener for a reliable transmission that matches the message is found, that listener is called, otherwise a listener
  * for the request/response transaction, a blockwise transfer, message method, or message type is searched. If no listener for any previous context
  * is found, the listener for all message (if present) is used.
+ * <p>
+ * Duplicates of received confirmable messages that have already been confirmed are not passed to any listener:
+ * the confirmation is sent again from the {@link CoapDeduplicationTable deduplication table}.
+ * <p>
+ * By default messages are received by a single thread that also runs the listeners.
+ * A provider created with {@link #CoapProvider(int, int, int, int)} runs on a NIO transport instead:
+ * datagrams are received by several threads (sharing the port through SO_REUSEPORT when supported)
+ * and listeners are run by a pool of workers. Messages from the same remote socket address are always
+ * processed by the same worker, in order; listeners of different remote endpoints may run concurrently.
+ * <p>
+ * Optionally, with {@link #setDispatcher(CoapDispatcher)}, each received message is processed by a {@link CoapDispatcher}
+ * (by default a virtual thread, or a pooled thread before Java 21, per exchange), so listeners may block without stalling
+ * the reception. Messages with the same remote socket address and token are still processed one at a time, in order.
  */
 public class CoapProvider {
 	
@@ -73,12 +91,24 @@ public class CoapProvider {
 	public static final int DEFAUL_PORT=5683;
 
 
-	/** Method listeners (Hashtable<CoapId,CoapProviderListener>) */
-	Hashtable<CoapId,CoapProviderListener> listeners=new Hashtable<CoapId,CoapProviderListener>();
+	/** Method listeners (ConcurrentHashMap<CoapId,CoapProviderListener>) */
+	ConcurrentHashMap<CoapId,CoapProviderListener> listeners=new ConcurrentHashMap<CoapId,CoapProviderListener>();
 
 	/** UDP provider */
 	UdpProvider udp_provider;
 
+	/** NIO UDP provider, used instead of the UDP provider when the provider has more receivers or workers */
+	NioUdpProvider nio_provider;
+
+	/** Table of the received confirmable messages, with the messages to be sent again for duplicates; entries are kept for EXCHANGE_LIFETIME */
+	volatile CoapDeduplicationTable dedup_table=new CoapDeduplicationTable(CoapReliableReception.EXCHANGE_LIFETIME,CoapDeduplicationTable.DEFAULT_GENERATIONS,CoapDeduplicationTable.DEFAULT_MAX_ENTRIES);
+
+	/** Dispatcher running the listeners, or <i>null</i> for running them on the receiving thread */
+	volatile CoapDispatcher dispatcher=null;
+
+	/** Empty token */
+	private static final byte[] NO_TOKEN=new byte[0];
+
 
 
 	/** Creates a new CoAP provider.
@@ -101,6 +131,24 @@ public class CoapProvider {
 	}
 
   
+	/** Creates a new CoAP provider running on a NIO transport.
+	 * @param port the local UDP port number
+	 * @param receiver_num number of threads receiving datagrams; with more than one, each thread has its own socket bound to the same port with SO_REUSEPORT (if supported)
+	 * @param worker_num number of threads processing the received messages
+	 * @param queue_size maximum number of received messages waiting for each worker; further messages are dropped */
+	public CoapProvider(int port, int receiver_num, int worker_num, int queue_size) throws IOException {
+		NioUdpProviderListener nio_provider_listener=new NioUdpProviderListener() {
+			public void onReceivedPacket(NioUdpProvider udp, ByteBuffer data, InetSocketAddress remote_soaddr) {
+				processReceivedPacket(data.array(),data.arrayOffset()+data.position(),data.remaining(),remote_soaddr);
+			}
+			public void onServiceTerminated(NioUdpProvider udp, Exception error) {
+				processServiceTerminated(error);
+			}
+		};
+		nio_provider=new NioUdpProvider(new InetSocketAddress(port),receiver_num,worker_num,queue_size,nio_provider_listener);
+	}
+
+  
 	/** Initializes the CoAP provider.
 	 * @param udp_socket the UDP socket */
 	private void init(DatagramSocket udp_socket) {
@@ -109,7 +157,7 @@ public class CoapProvider {
 				processReceivedPacket(udp,packet);
 			}
 			public void onServiceTerminated(UdpProvider udp, Exception error) {
-				processServiceTerminated(udp,error);
+				processServiceTerminated(error);
 			}
 		};
 		udp_provider=new UdpProvider(udp_socket,udp_provider_listener);
@@ -119,10 +167,39 @@ public class CoapProvider {
 	/** Gets CoAP port.
 	 * @return the local UDP port used by CoAP */
   public int getPort()
-  {  try {  return udp_provider.getSocket().getLocalPort();  } catch (Exception e) {  return -1;  } 
+  {  if (nio_provider!=null) return nio_provider.getLocalPort();
+     try {  return udp_provider.getSocket().getLocalPort();  } catch (Exception e) {  return -1;  } 
   }
 
 
+	/** Sets the dispatcher that runs the listeners of received messages.
+	 * @param dispatcher the dispatcher, e.g. <i>new CoapDispatcher()</i>, or <i>null</i> for running listeners on the receiving thread */
+	public void setDispatcher(CoapDispatcher dispatcher) {
+		this.dispatcher=dispatcher;
+	}
+
+
+	/** Gets the dispatcher that runs the listeners of received messages.
+	 * @return the dispatcher, or <i>null</i> if listeners run on the receiving thread */
+	public CoapDispatcher getDispatcher() {
+		return dispatcher;
+	}
+
+
+	/** Gets the deduplication table.
+	 * @return the table of the received confirmable messages */
+	public CoapDeduplicationTable getDeduplicationTable() {
+		return dedup_table;
+	}
+
+
+	/** Sets the deduplication table, e.g. for changing its size bounds.
+	 * @param dedup_table the table of the received confirmable messages */
+	public void setDeduplicationTable(CoapDeduplicationTable dedup_table) {
+		this.dedup_table=dedup_table;
+	}
+
+
 	/** Adds a new CoapProvider listener.
 	  * @param id the identifier of a CoAP method, of a reliable transmission, or of a transaction; it specifies the kind of messages that the listener is interested to receive. <br>
 	  *  Use the proper <i>get</i> method of class {@link CoapId} (e.g. <i>CoapId.getMethodId(CoapRequestMethod.GET)</i>,
@@ -131,34 +208,32 @@ public class CoapProvider {
 	  *  Otherwise, you can use {@link CoapId#REQUEST} for capturing all request messages, or {@link CoapId#ANY} for capturing all messages (both requests and responses)
 	  * @param listener the CoapProvider listener */
 	public void addListener(CoapId id, CoapProviderListener listener) {
-		trace("addListener(): "+listener+", "+id);
-		if (listeners.containsKey(id)) warning("addListener(): found a previous listener for "+id+": replaced");
-		listeners.put(id,listener);
+		trace(() -> "addListener(): "+listener+", "+id);
+		if (listeners.put(id,listener)!=null) warning(() -> "addListener(): found a previous listener for "+id+": replaced");
 	}
 
 
 	/** Removes a CoapProvider listener.
 	  * @param id the identifier of a CoAP method, a reliable transmission, or a transaction, associated to the listener that has to be removed */
 	public void removeListener(CoapId id) {
-		trace("removeListener(id): "+id);
-		if (!listeners.containsKey(id)) warning("removeListener(id): listener for "+id+" not found");
-		else listeners.remove(id);
+		trace(() -> "removeListener(id): "+id);
+		if (listeners.remove(id)==null) warning(() -> "removeListener(id): listener for "+id+" not found");
 	}
 
 
 	/** Removes a CoapProvider listener.
 	  * @param listener the listener that has to be removed */
 	public void removeListener(CoapProviderListener listener) {
-		for (Enumeration<CoapId> i=listeners.keys(); i.hasMoreElements(); ) {
-			Object key=i.nextElement();
-			if (listeners.get(key)==listener) {
-				trace("removeListener(listener): id: "+listener+", "+key);
-				listeners.remove(key);
+		for (Iterator<Map.Entry<CoapId,CoapProviderListener>> i=listeners.entrySet().iterator(); i.hasNext(); ) {
+			Map.Entry<CoapId,CoapProviderListener> entry=i.next();
+			if (entry.getValue()==listener) {
+				trace(() -> "removeListener(listener): id: "+listener+", "+entry.getKey());
+				i.remove();
 				return;
 			}
 		}
 		// else
-		warning("removeListener(listener): listener "+listener+" not found");
+		warning(() -> "removeListener(listener): listener "+listener+" not found");
 	}
 
 
@@ -180,14 +255,66 @@ public class CoapProvider {
 	  * @param msg the CoAP message
 	  * @param remote_soaddr the remote socket address where the message has to be sent to */
 	public void send(CoapMessage msg, InetSocketAddress remote_soaddr) {
-		debug("send(): "+msg.toString()+","+InetAddrUtils.toString(remote_soaddr));
-		trace("send(): "+CoapProtocolAnalyzer.analyze(msg).toString(2));
+		if (SystemUtils.isLoggable(LoggerLevel.DEBUG)) {
+			debug("send(): "+msg.toString()+","+InetAddrUtils.toString(remote_soaddr));
+			trace(() -> "send(): "+CoapProtocolAnalyzer.analyze(msg).toString(2));
+		}
+		send(msg.getBytes(),remote_soaddr);
+	}
+
+
+	/** Sends a batch of CoAP messages, e.g. the notifications of a resource change to its observers.
+	  * The messages are encoded one after the other in the same buffer and passed to the socket with no further allocation,
+	  * and only the batch, not each message, is logged.
+	  * @param msgs the CoAP messages
+	  * @param remote_soaddrs the remote socket addresses where the messages have to be sent to
+	  * @param count the number of messages */
+	public void send(CoapMessage[] msgs, InetSocketAddress[] remote_soaddrs, int count) {
+		debug(() -> "send(): batch of "+count+" messages");
+		if (count<=0) return;
+		// else
+		int max_len=0;
+		for (int i=0; i<count; i++) max_len=Math.max(max_len,msgs[i].getLength());
+		byte[] buf=new byte[max_len];
+		ByteBuffer data=ByteBuffer.wrap(buf);
+		DatagramPacket packet=nio_provider==null? new DatagramPacket(buf,0) : null;
+		int dropped=0;
+		for (int i=0; i<count; i++) {
+			try {
+				int len=msgs[i].getBytes(buf,0);
+				InetSocketAddress remote_soaddr=remote_soaddrs[i];
+				if (remote_soaddr.getPort()<=0) remote_soaddr=new InetSocketAddress(remote_soaddr.getAddress(),DEFAUL_PORT);
+				if (nio_provider!=null) {
+					data.clear().limit(len);
+					if (!nio_provider.send(data,remote_soaddr)) dropped++;
+				}
+				else {
+					packet.setData(buf,0,len);
+					packet.setSocketAddress(remote_soaddr);
+					udp_provider.send(packet);
+				}
+			}
+			catch (java.io.IOException e) {
+				e.printStackTrace();
+			}
+		}
+		if (dropped>0) warning("send(): socket buffer full: "+dropped+" messages dropped");
+	}
+
+
+	/** Sends the bytes of a CoAP message.
+	  * @param data the message bytes
+	  * @param remote_soaddr the remote socket address where the message has to be sent to */
+	private void send(byte[] data, InetSocketAddress remote_soaddr) {
 		try {
-			byte[] data=msg.getBytes();
 			InetAddress remote_ipaddr=remote_soaddr.getAddress();
 			int remote_port=remote_soaddr.getPort();
 			if (remote_port<=0) remote_port=DEFAUL_PORT;
-			udp_provider.send(new DatagramPacket(data,data.length,remote_ipaddr,remote_port));
+			if (nio_provider!=null) {
+				if (remote_port!=remote_soaddr.getPort()) remote_soaddr=new InetSocketAddress(remote_ipaddr,remote_port);
+				if (!nio_provider.send(data,0,data.length,remote_soaddr)) warning("send(): socket buffer full: message dropped");
+			}
+			else udp_provider.send(new DatagramPacket(data,data.length,remote_ipaddr,remote_port));
 		}
 		catch (java.io.IOException e) {
 			e.printStackTrace();
@@ -198,6 +325,11 @@ public class CoapProvider {
 	/** Stops the CoAP provider. */
 	public void halt() {
 		listeners.clear();
+		if (nio_provider!=null) {
+			nio_provider.halt();
+			return;
+		}
+		// else
 		final DatagramSocket udp_socket=udp_provider.getSocket();
 		udp_provider.halt();
 		new Thread() {
@@ -214,11 +346,36 @@ public class CoapProvider {
 	  * @param udp the UDP provider
 	  * @param packet the received UDP datagram */
 	private void processReceivedPacket(UdpProvider udp, DatagramPacket packet) {
+		processReceivedPacket(packet.getData(),packet.getOffset(),packet.getLength(),new InetSocketAddress(packet.getAddress(),packet.getPort()));
+	}
+
+
+	/** When a new UDP datagram is received.
+	  * @param buf buffer containing the datagram
+	  * @param off offset of the datagram within the buffer
+	  * @param len length of the datagram
+	  * @param remote_soaddr the socket address of the sender */
+	private void processReceivedPacket(byte[] buf, int off, int len, InetSocketAddress remote_soaddr) {
 		trace("processReceivedPacket()");
 		try {
-			CoapMessage msg=new CoapMessage(packet.getData(),packet.getOffset(),packet.getLength());
-			msg.setRemoteSoAddress(new InetSocketAddress(packet.getAddress(),packet.getPort()));
-			processReceivedMessage(msg);
+			// the message is a view of the receive buffer, that is reused after returning
+			final CoapMessage msg=CoapMessage.wrap(buf,off,len);
+			msg.setRemoteSoAddress(remote_soaddr);
+			CoapDispatcher d=dispatcher;
+			if (d==null) {
+				// listeners that keep the message detach it; it is not copied otherwise
+				try {  processReceivedMessage(msg);  } finally {  msg.release();  }
+			}
+			else {
+				// the dispatcher keeps the message after the buffer is reused
+				msg.detach();
+				byte[] token=msg.getToken();
+				d.execute(CoapId.getTransactionId(remote_soaddr,token!=null? token : NO_TOKEN),new Runnable() {
+					public void run() {
+						processReceivedMessage(msg);
+					}
+				});
+			}
 		}
 		catch (CoapMessageFormatException e) {
 			e.printStackTrace();
@@ -232,47 +389,54 @@ public class CoapProvider {
 	/** When a new CoAP message is received.
 	  * @param msg the CoAP message */
 	protected void processReceivedMessage(CoapMessage msg) {
-		debug("processReceivedMessage(): "+msg.toString());
-		trace("processReceivedMessage(): "+CoapProtocolAnalyzer.analyze(msg).toString(2));
-		InetSocketAddress remote_soddr=msg.getRemoteSoAddress();
-		CoapId id=CoapId.getReliableTransmissionId(remote_soddr,msg.getMessageId());
-		trace("processReceivedMessage(): transmission-id: "+id);
-		if (listeners.containsKey(id)) ((CoapProviderListener)listeners.get(id)).onReceivedMessage(this,msg);
-		else {
+		// log messages are composed only if they are going to be logged, since this runs for every received message
+		boolean trace=SystemUtils.isLoggable(LoggerLevel.TRACE);
+		if (SystemUtils.isLoggable(LoggerLevel.DEBUG)) {
+			debug("processReceivedMessage(): "+msg.toString());
+			if (trace) trace("processReceivedMessage(): "+CoapProtocolAnalyzer.analyze(msg).toString(2));
+		}
+		// the lookup identifier is rewritten at each stage, and it is never stored
+		CoapId.Lookup id=CoapId.lookup();
+		id.setEndpoint(msg.getRemoteSoAddress());
+		CoapProviderListener listener=listeners.get(id.transmission(msg.getMessageId()));
+		if (trace) trace("processReceivedMessage(): transmission-id: "+id);
+		if (listener==null && msg.isCON()) {
+			byte[] data=dedup_table.get(id);
+			if (data!=null) {
+				debug("processReceivedMessage(): duplicate message");
+				if (data.length>0) send(data,msg.getRemoteSoAddress());
+				return;
+			}
+		}
+		if (listener==null) {
 			byte[] token=msg.getToken();
-			id=(token!=null)? CoapId.getTransactionId(remote_soddr,token) : null;
-			trace("processReceivedMessage(): transaction-id: "+id);
-			if (id!=null && listeners.containsKey(id)) ((CoapProviderListener)listeners.get(id)).onReceivedMessage(this,msg);
-			else {
-				CoapRequestMethod method=(msg.isRequest())? CoapRequestMethod.getMethodByCode(msg.getCode()) : null;
-				id=(method!=null)? CoapId.getTransferId(remote_soddr,method,new CoapRequest(msg).getRequestUriPath()) : null;
-				trace("processReceivedMessage(): transfer-id: "+id);
-				if (id!=null && listeners.containsKey(id)) ((CoapProviderListener)listeners.get(id)).onReceivedMessage(this,msg);
-				else {
-					id=(method!=null)? CoapId.getMethodId(method) : null;
-					trace("processReceivedMessage(): method-id: "+id);
-					if (id!=null && listeners.containsKey(id)) ((CoapProviderListener)listeners.get(id)).onReceivedMessage(this,msg);
-					else {
-						//if (msg.isRequest() && listeners.containsKey(CoapId.REQUEST)) ((CoapProviderListener)listeners.get(CoapId.REQUEST)).onReceivedMessage(this,msg);
-						if (method!=null && listeners.containsKey(CoapId.REQUEST)) ((CoapProviderListener)listeners.get(CoapId.REQUEST)).onReceivedMessage(this,msg);
-						else {
-							if (listeners.containsKey(CoapId.ANY)) ((CoapProviderListener)listeners.get(CoapId.ANY)).onReceivedMessage(this,msg);
-							else {
-								debug("processReceivedMessage(): no listener found");
-								if (msg.isCON()) send(new CoapMessage(CoapMessageType.RST,CoapMessage.EMPTY,msg.getMessageId()),msg.getRemoteSoAddress());
-							}
-						}
-					}
-				}
+			if (token!=null) {
+				listener=listeners.get(id.transaction(token));
+				if (trace) trace("processReceivedMessage(): transaction-id: "+id);
 			}
-		}		
+		}
+		CoapRequestMethod method=(listener==null && msg.isRequest())? CoapRequestMethod.getMethodByCode(msg.getCode()) : null;
+		if (method!=null) {
+			listener=listeners.get(id.transfer(method.getCode(),msg));
+			if (trace) trace("processReceivedMessage(): transfer-id: "+id);
+			if (listener==null) {
+				listener=listeners.get(id.method(method.getCode()));
+				if (trace) trace("processReceivedMessage(): method-id: "+id);
+			}
+			if (listener==null) listener=listeners.get(CoapId.REQUEST);
+		}
+		if (listener==null) listener=listeners.get(CoapId.ANY);
+		if (listener!=null) listener.onReceivedMessage(this,msg);
+		else {
+			debug("processReceivedMessage(): no listener found");
+			if (msg.isCON()) send(new CoapMessage(CoapMessageType.RST,CoapMessage.EMPTY,msg.getMessageId()),msg.getRemoteSoAddress());
+		}
 	}
 
 		
-	/** When UdpProvider terminates.
-	  * @param udp the UDP provider
+	/** When the UDP provider terminates.
 	  * @param error the error that caused the termination, or <i>null</i> */
-	private void processServiceTerminated(UdpProvider udp, Exception error)  {
+	private void processServiceTerminated(Exception error)  {
 		//if (listener!=null) listener.onServiceTerminated(this,error);
 		// do something
 		String reason=error==null? "halted" : error.getMessage();
@@ -283,21 +447,45 @@ public class CoapProvider {
 	/** Logs a warning message.
 	  * @param str the message to be logged */
 	private void warning(String str) {
-		SystemUtils.log(LoggerLevel.WARNING,null,toString()+": "+str);
+		log(LoggerLevel.WARNING,str);
+	}
+
+	/** Logs a warning message, composed only if it is going to be logged.
+	  * @param str the supplier of the message to be logged */
+	private void warning(Supplier<String> str) {
+		if (SystemUtils.isLoggable(LoggerLevel.WARNING)) log(LoggerLevel.WARNING,str.get());
 	}
 
 	
 	/** Logs a debug message.
 	  * @param str the message to be logged */
 	private void debug(String str) {
-		SystemUtils.log(LoggerLevel.DEBUG,null,toString()+": "+str);
+		log(LoggerLevel.DEBUG,str);
+	}
+
+	/** Logs a debug message, composed only if it is going to be logged.
+	  * @param str the supplier of the message to be logged */
+	private void debug(Supplier<String> str) {
+		if (SystemUtils.isLoggable(LoggerLevel.DEBUG)) log(LoggerLevel.DEBUG,str.get());
 	}
 
 	
 	/** Logs a verbose (trace) message.
 	  * @param str the message to be logged */
 	private void trace(String str) {
-		SystemUtils.log(LoggerLevel.TRACE,null,toString()+": "+str);
+		log(LoggerLevel.TRACE,str);
+	}
+
+	/** Logs a verbose (trace) message, composed only if it is going to be logged.
+	  * @param str the supplier of the message to be logged */
+	private void trace(Supplier<String> str) {
+		if (SystemUtils.isLoggable(LoggerLevel.TRACE)) log(LoggerLevel.TRACE,str.get());
+	}
+
+
+	/** Logs a message, prefixed by the description of this provider. */
+	private void log(LoggerLevel level, String str) {
+		if (SystemUtils.isLoggable(level)) SystemUtils.log(level,null,toString()+": "+str);
 	}
 
 
@@ -311,6 +499,13 @@ public class CoapProvider {
 	
 	@Override
 	public String toString() {
+		if (nio_provider==null && udp_provider==null) return getClass().getSimpleName()+"[none]";
+		if (nio_provider!=null) {
+			if (!nio_provider.isRunning()) return getClass().getSimpleName()+"[closed]";
+			InetSocketAddress local_soaddr=nio_provider.getLocalSocketAddress();
+			return getClass().getSimpleName()+'['+local_soaddr.getAddress().getHostAddress()+":"+local_soaddr.getPort()+']';
+		}
+		// else
 		DatagramSocket udp_socket=udp_provider.getSocket();
 		if (udp_socket.isClosed()) return getClass().getSimpleName()+"[closed]";
 		return getClass().getSimpleName()+'['+udp_socket.getLocalAddress().getHostAddress()+":"+udp_socket.getLocalPort()+']';
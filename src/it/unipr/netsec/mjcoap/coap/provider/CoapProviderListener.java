@@ -32,6 +32,8 @@ import MyProject.CoapMessage;
 public interface CoapProviderListener {
 	
 	/** When a new CoAP message is received.
+	  * The message may still be a view of the receive buffer: a listener that keeps it after returning
+	  * has to call {@link CoapMessage#detach()} first.
 	  * @param coap_provider the CoAP provider
 	  * @param msg the received CoAP message */
 	public void onReceivedMessage(CoapProvider coap_provider, CoapMessage msg);
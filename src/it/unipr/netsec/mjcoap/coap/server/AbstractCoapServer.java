@@ -25,6 +25,7 @@ package it.unipr.netsec.mjcoap.coap.server;
 
 
 import MyProject.CoapMessage;
+import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.util.Hashtable;
 
@@ -75,21 +76,27 @@ public abstract class AbstractCoapServer {
 
 	/** Creates a new CoAP server. */
 	public AbstractCoapServer() throws SocketException {
-		init(-1);
+		init(new CoapProvider(CoapProvider.DEFAUL_PORT));
 	}
 
 
 	/** Creates a new CoAP server.
 	 * @param local_port CoAP UDP port */
 	public AbstractCoapServer(int local_port) throws SocketException {
-		init(local_port);
+		init(new CoapProvider(local_port<0? CoapProvider.DEFAUL_PORT : local_port));
+	}
+
+
+	/** Creates a new CoAP server.
+	 * @param coap_provider the CoAP provider, e.g. one running on a multi-threaded NIO transport */
+	public AbstractCoapServer(CoapProvider coap_provider) {
+		init(coap_provider);
 	}
 
 
 	/** Inits the CoAP server.
-	 * @param local_port CoAP UDP port */
-	private void init(int local_port) throws SocketException {
-		if (local_port<0) local_port=CoapProvider.DEFAUL_PORT;
+	 * @param coap_provider the CoAP provider */
+	private void init(CoapProvider coap_provider) {
 
 		this_os_listener=new ObserveTransactionServerListener() {	
 			@Override
@@ -131,7 +138,7 @@ public abstract class AbstractCoapServer {
 				new BlockwiseTransactionServer(coap_provider,req,max_block_size,this_ts_listener);
 			}
 		};
-		coap_provider=new CoapProvider(local_port);
+		this.coap_provider=coap_provider;
 		coap_provider.addListener(CoapId.REQUEST,this_cp_listener);
 	}
 
@@ -228,6 +235,38 @@ public abstract class AbstractCoapServer {
 		}
 	}
 
+
+	/** Sends notifications to the observers of a resource, in one batch.
+	 * Notifications to an observer that has not acknowledged a previous confirmable notification are coalesced
+	 * (see {@link ObserveTransactionServer#prepareNotify(CoapResponse,int)}).
+	 * @param reqs the observe requests
+	 * @param resps the notifications, one for each request
+	 * @param seqn the observe sequence number already set in the notifications, or -1
+	 * @return the number of notifications that have been sent now */
+	protected int sendNotifications(CoapRequest[] reqs, CoapResponse[] resps, int seqn) {
+		CoapMessage[] msgs=new CoapMessage[reqs.length];
+		InetSocketAddress[] remote_soaddrs=new InetSocketAddress[reqs.length];
+		int batch=0;
+		int count=0;
+		for (int i=0; i<reqs.length; i++) {
+			ObserveTransactionServer os=observe_servers.get(reqs[i]);
+			if (os==null) {
+				// not registered yet
+				if (respond(reqs[i],resps[i])) count++;
+				continue;
+			}
+			// else
+			CoapResponse resp=os.prepareNotify(resps[i],seqn);
+			if (resp!=null) {
+				msgs[batch]=resp;
+				remote_soaddrs[batch++]=os.getRemoteSocketAddress();
+			}
+		}
+		coap_provider.send(msgs,remote_soaddrs,batch);
+		count+=batch;
+		return count;
+	}
+
 	
 	/** Stops the server. */
 	public void halt() {
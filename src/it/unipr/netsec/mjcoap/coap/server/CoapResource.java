@@ -26,14 +26,26 @@ package it.unipr.netsec.mjcoap.coap.server;
 
 import org.zoolu.util.ByteUtils;
 
+import it.unipr.netsec.mjcoap.coap.message.CoapMessageFactory;
+import it.unipr.netsec.mjcoap.coap.message.CoapMessageType;
 import it.unipr.netsec.mjcoap.coap.message.CoapRequest;
+import it.unipr.netsec.mjcoap.coap.message.CoapResponse;
+import it.unipr.netsec.mjcoap.coap.message.CoapResponseCode;
+import it.unipr.netsec.mjcoap.coap.option.CoapOption;
+import it.unipr.netsec.mjcoap.coap.option.CoapOptionNumber;
 import it.unipr.netsec.mjcoap.coap.option.ContentFormatOption;
+import it.unipr.netsec.mjcoap.coap.option.ETagOption;
+import it.unipr.netsec.mjcoap.coap.option.MaxAgeOption;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 
 
 /** Server resource.
+ * <p>
+ * The entity-tag of the current value, and the encoded options and payload of the responses
+ * to GET requests and of the notifications to the observers, are computed once and kept until the value or the format is changed.
  */
 public class CoapResource {
 
@@ -85,6 +97,24 @@ public class CoapResource {
 	/** Active observe requests */
 	HashSet<CoapRequest> observe_requests=new HashSet<CoapRequest>();
 
+	/** Entity-tag of the current value, or null if not computed yet */
+	byte[] etag=null;
+
+	/** Encoded options and payload of the 2.05 Content response, or null if not computed yet */
+	byte[] content_body=null;
+
+	/** Encoded options of the 2.03 Valid response, or null if not computed yet */
+	byte[] valid_body=null;
+
+	/** Max-Age of the encoded responses */
+	int body_max_age=-1;
+
+	/** Observe sequence number of the current state, incremented at each change */
+	int notification_seqn=0;
+
+	/** Encoded options and payload of the notifications of the current state, or null if not computed yet */
+	byte[] notification_body=null;
+
 
 	/** Creates a new resource.
 	 * @param name resource name
@@ -124,8 +154,9 @@ public class CoapResource {
 	
 	/** Sets the resource value format.
 	 * @param format resource value format */
-	public void setFormat(int format) {
+	public synchronized void setFormat(int format) {
 		this.format=format;
+		invalidate();
 	}
 	
 	/** Gets resource value.
@@ -135,23 +166,124 @@ public class CoapResource {
 	}
 	
 	/** Sets resource value.
+	 * The array should not be changed afterwards, since it is not copied.
 	 * @param value the resource value */
-	public void setValue(byte[] value) {
+	public synchronized void setValue(byte[] value) {
 		this.value=value;
+		invalidate();
+	}
+
+	/** Gets the entity-tag of the current value.
+	 * It is a 64-bit hash of format and value, so it does not change when the same value is set again.
+	 * @return the entity-tag */
+	public synchronized byte[] getETag() {
+		if (etag==null) {
+			// FNV-1a
+			long h=0xcbf29ce484222325L;
+			for (int i=0; i<4; i++) h=(h^((format>>(8*i))&0xff))*0x100000001b3L;
+			if (value!=null) for (int i=0; i<value.length; i++) h=(h^(value[i]&0xff))*0x100000001b3L;
+			etag=new byte[8];
+			for (int i=0; i<8; i++) etag[i]=(byte)(h>>(8*(7-i)));
+		}
+		return etag;
+	}
+
+	/** Creates the response to a GET request.
+	 * The choice between 2.03 Valid and 2.05 Content and the encoding of the response are made on the same state,
+	 * so that a concurrent {@link #setValue(byte[])} cannot validate an old representation with the new entity-tag.
+	 * @param req the GET request; it gets a 2.03 Valid response if it contains the current entity-tag, and it is not an observe registration
+	 * @param max_age the Max-Age, or -1 for not including the Max-Age option
+	 * @return the response */
+	synchronized CoapResponse createGetResponse(CoapRequest req, int max_age) {
+		boolean valid=!req.hasObserveRegister() && hasETag(req,getETag());
+		CoapResponse resp=CoapMessageFactory.createResponse(req,valid? CoapResponseCode._2_03_Valid : CoapResponseCode._2_05_Content);
+		resp.setBodyBytes(getResponseBody(valid,max_age));
+		return resp;
+	}
+
+	/** Whether a request contains a given entity-tag. */
+	private static boolean hasETag(CoapRequest req, byte[] etag) {
+		CoapOption[] etags=req.getOptions(CoapOptionNumber.ETag);
+		for (int i=0; i<etags.length; i++) {
+			if (Arrays.equals(etags[i].getValueAsOpaque(),etag)) return true;
+		}
+		return false;
+	}
+
+	/** Gets the encoded options and payload of the response to a GET request.
+	 * @param valid whether the response is 2.03 Valid (the request contains the current entity-tag), or 2.05 Content
+	 * @param max_age the Max-Age, or -1 for not including the Max-Age option
+	 * @return the encoded options and payload, to be set with {@link CoapResponse#setBodyBytes(byte[])} */
+	private synchronized byte[] getResponseBody(boolean valid, int max_age) {
+		if (max_age!=body_max_age) {
+			content_body=null;
+			valid_body=null;
+			body_max_age=max_age;
+		}
+		if (valid) {
+			if (valid_body==null) valid_body=encodeResponseBody(CoapResponseCode._2_03_Valid,max_age);
+			return valid_body;
+		}
+		// else
+		if (content_body==null) content_body=encodeResponseBody(CoapResponseCode._2_05_Content,max_age);
+		return content_body;
+	}
+
+	/** Encodes the options and payload of a response. */
+	private byte[] encodeResponseBody(CoapResponseCode response_code, int max_age) {
+		CoapResponse resp=new CoapResponse(CoapMessageType.NON,response_code,0);
+		if (response_code==CoapResponseCode._2_05_Content) resp.setPayload(format,value);
+		resp.addOption(new ETagOption(getETag()));
+		if (max_age>=0) resp.addOption(new MaxAgeOption(max_age));
+		return resp.getBodyBytes();
+	}
+
+	/** Gets the observe sequence number of the current state.
+	 * @return the sequence number that is included in the notifications of the current state */
+	synchronized int getNotificationSequenceNumber() {
+		return notification_seqn;
+	}
+
+	/** Gets the encoded options and payload of the notifications of the current state.
+	 * The same encoding is shared by the notifications to all observers, with the same observe sequence number.
+	 * @return the encoded options and payload, to be set with {@link CoapResponse#setBodyBytes(byte[])} */
+	synchronized byte[] getNotificationBody() {
+		if (notification_body==null) {
+			CoapResponse resp=new CoapResponse(CoapMessageType.NON,CoapResponseCode._2_04_Changed,0);
+			resp.setPayload(format,value);
+			resp.setObserveSequenceNumber(notification_seqn);
+			notification_body=resp.getBodyBytes();
+		}
+		return notification_body;
+	}
+
+	/** Drops the entity-tag and the encoded responses, and starts a new observe sequence number. */
+	private void invalidate() {
+		etag=null;
+		content_body=null;
+		valid_body=null;
+		notification_body=null;
+		notification_seqn=(notification_seqn+1)&0xFFFFFF;
 	}
 	
 	/** Adds a request to observe the resource.
 	 * @param req the request to be added */
-	public void addObserveRequest(CoapRequest req) {
+	public synchronized void addObserveRequest(CoapRequest req) {
 		observe_requests.add(req);
 	}
 	
 	/** Removes a request to observe the resource.
 	 * @param req the request to be removed */
-	public void removeObserveRequest(CoapRequest req) {
+	public synchronized void removeObserveRequest(CoapRequest req) {
 		observe_requests.remove(req);
 	}
 	
+	/** Gets the active observe requests.
+	 * @return a snapshot of the requests */
+	public synchronized CoapRequest[] getObserveRequests() {
+		return observe_requests.toArray(new CoapRequest[observe_requests.size()]);
+	}
+	
 	/** Gets an iterator of the requests to observe the resource.
 	 * @return an iterator of requests */
 	public Iterator<CoapRequest> getObserveRequestIterator() {
@@ -24,15 +24,16 @@ package it.unipr.netsec.mjcoap.coap.server;
 
 import org.zoolu.util.ByteUtils;
 import org.zoolu.util.LoggerLevel;
-import org.zoolu.util.Logger;
 import org.zoolu.util.Random;
 import org.zoolu.util.SystemUtils;
 
 import it.unipr.netsec.mjcoap.coap.message.*;
+import it.unipr.netsec.mjcoap.coap.provider.CoapProvider;
 
 import java.net.SocketException;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.function.Supplier;
 
 /**
  * Ready-to-use simple stateful CoAP server. It handles CoAP GET, PUT, and
@@ -65,6 +66,16 @@ import java.util.Iterator;
  * 	server.setResource("/test",CoapResource.FORMAT_TEXT_PLAIN_UTF8,"Hello World!".getBytes());
  * </pre>
  * <p>
+ * Responses to GET requests carry the resource entity-tag (ETag option), and
+ * optionally a Max-Age (see {@link #setMaxAge(int)}). A GET request with the
+ * current entity-tag of the resource gets a 2.03 Valid response without
+ * payload. Options and payload of these responses are encoded once per
+ * resource value, so that only header and token are written for each request.
+ * <p>
+ * When a resource changes, the notifications to all its observers share the
+ * same encoded options and payload, and are sent in one batch. A slow observer
+ * that has not acknowledged the previous notification yet only gets the latest
+ * state, after the acknowledgement.
  */
 public class CoapServer extends AbstractCoapServer {
 
@@ -100,6 +111,12 @@ public class CoapServer extends AbstractCoapServer {
      */
     Hashtable<String, CoapResource> resources = new Hashtable<String, CoapResource>();
 
+    /**
+     * Max-Age of the responses to GET requests [sec], or -1 for not including
+     * the Max-Age option (i.e. 60 seconds)
+     */
+    int max_age = -1;
+
     String Crypto_Alg = "RSA"; // RSA, RSA-AES
     boolean Encrypted;
 
@@ -119,6 +136,16 @@ public class CoapServer extends AbstractCoapServer {
         super(local_port);
     }
 
+    /**
+     * Creates a new CoAP server.
+     *
+     * @param coap_provider the CoAP provider, e.g. one running on a
+     * multi-threaded NIO transport
+     */
+    public CoapServer(CoapProvider coap_provider) {
+        super(coap_provider);
+    }
+
     /**
      * Whether it is in write-enabled mode.
      *
@@ -156,9 +183,29 @@ public class CoapServer extends AbstractCoapServer {
         return reliable_notification;
     }
 
+    /**
+     * Sets the Max-Age of the responses to GET requests.
+     *
+     * @param max_age the time a response can be cached, in seconds, or -1 for
+     * not including the Max-Age option (i.e. 60 seconds)
+     */
+    public void setMaxAge(int max_age) {
+        this.max_age = max_age;
+    }
+
+    /**
+     * Gets the Max-Age of the responses to GET requests.
+     *
+     * @return the time a response can be cached, in seconds, or -1 if the
+     * Max-Age option is not included
+     */
+    public int getMaxAge() {
+        return max_age;
+    }
+
     @Override
     public boolean respond(CoapRequest req, CoapResponse resp) {
-        log("respond(): " + resp.getCodeAsString());
+        log(() -> "respond(): " + resp.getCodeAsString());
         // Crypto
         boolean success = super.respond(req, resp);
 
@@ -170,16 +217,12 @@ public class CoapServer extends AbstractCoapServer {
 
     @Override
     protected void handleGetRequest(CoapRequest req) {
-
-
-
         String resource_name = req.getRequestUriPath();
-        log("handleGetRequest(): " + req.getCodeAsString() + " " + resource_name);
-        if (resources.containsKey(resource_name)) {
-            CoapResource resource = resources.get(resource_name);
-            CoapResponse resp = CoapMessageFactory.createResponse(req, CoapResponseCode._2_05_Content);
-            resp.setPayload(resource.getFormat(), resource.getValue());
-            respond(req, resp);
+        log(() -> "handleGetRequest(): " + req.getCodeAsString() + " " + resource_name);
+        CoapResource resource = resources.get(resource_name);
+        if (resource != null) {
+            // observe requests always get the current value
+            respond(req, resource.createGetResponse(req, max_age));
         } else {
             CoapResponse resp = CoapMessageFactory.createResponse(req, CoapResponseCode._4_04_Not_Found);
             respond(req, resp);
@@ -189,7 +232,7 @@ public class CoapServer extends AbstractCoapServer {
     @Override
     protected void handlePutRequest(CoapRequest req) {
         String resource_name = req.getRequestUriPath();
-        log("handlePutRequest(): " + req.getCodeAsString() + " " + resource_name);
+        log(() -> "handlePutRequest(): " + req.getCodeAsString() + " " + resource_name);
         if (!write_mode) {
             log("handlePutRequest(): not in write mode");
             super.handlePutRequest(req);
@@ -211,7 +254,7 @@ public class CoapServer extends AbstractCoapServer {
     @Override
     protected void handleDeleteRequest(CoapRequest req) {
         String resource_name = req.getRequestUriPath();
-        log("handleDeleteRequest(): " + req.getCodeAsString() + " " + resource_name);
+        log(() -> "handleDeleteRequest(): " + req.getCodeAsString() + " " + resource_name);
         if (!write_mode) {
             log("handleDeleteRequest(): not in write mode");
             super.handleDeleteRequest(req);
@@ -289,7 +332,7 @@ public class CoapServer extends AbstractCoapServer {
      * @param value the new resource value
      */
     public synchronized void setResource(String name, int format, byte[] value) {
-        log("setResource(): " + name + "," + format + "," + (value != null ? ByteUtils.asHex(value) : "void"));
+        log(() -> "setResource(): " + name + "," + format + "," + (value != null ? ByteUtils.asHex(value) : "void"));
         CoapResource resource;
         if (resources.containsKey(name)) {
             resource = resources.get(name);
@@ -305,20 +348,25 @@ public class CoapServer extends AbstractCoapServer {
                 removeResource(resources.elements().nextElement().getName());
             }
         }
-        // notifies the new value to all observers
-        int count = 0;
-        for (Iterator<CoapRequest> i = resource.getObserveRequestIterator(); i.hasNext();) {
-            CoapRequest req_i = i.next();
-            log("setResource(): notify to: " + req_i.getRemoteSoAddress());
-            CoapResponse resp_i = CoapMessageFactory.createResponse(req_i, CoapResponseCode._2_04_Changed);
-            resp_i.setPayload(format, value);
+        // notifies the new value to all observers, in one batch, sharing the encoded options and payload
+        CoapRequest[] reqs;
+        byte[] body;
+        int seqn;
+        synchronized (resource) {
+            reqs = resource.getObserveRequests();
+            body = resource.getNotificationBody();
+            seqn = resource.getNotificationSequenceNumber();
+        }
+        CoapResponse[] resps = new CoapResponse[reqs.length];
+        for (int i = 0; i < reqs.length; i++) {
+            resps[i] = CoapMessageFactory.createResponse(reqs[i], CoapResponseCode._2_04_Changed);
+            resps[i].setBodyBytes(body);
             if (!reliable_notification && Random.nextInt(RELIABLE_NOTIFICATION_RATE) != 0) {
-                resp_i.setType(CoapMessageType.NON);
+                resps[i].setType(CoapMessageType.NON);
             }
-            respond(req_i, resp_i);
-            count++;
         }
-        log("setResource(): observers notified: " + count);
+        int count = sendNotifications(reqs, resps, seqn);
+        log(() -> "setResource(): observers notified: " + count);
     }
 
     /**
@@ -332,7 +380,7 @@ public class CoapServer extends AbstractCoapServer {
         if (resource != null) {
             for (Iterator<CoapRequest> i = resource.getObserveRequestIterator(); i.hasNext();) {
                 CoapRequest req_i = i.next();
-                log("removeResource(): notify to: " + req_i.getRemoteSoAddress());
+                log(() -> "removeResource(): notify to: " + req_i.getRemoteSoAddress());
                 CoapResponse resp_i = CoapMessageFactory.createResponse(req_i, CoapResponseCode._4_04_Not_Found);
                 respond(req_i, resp_i);
             }
@@ -344,10 +392,14 @@ public class CoapServer extends AbstractCoapServer {
      * Logs a message.
      */
     private void log(String str) {
-        Logger logger = SystemUtils.getDefaultLogger();
-        if (logger != null) {
-            logger.log(LoggerLevel.INFO, getClass(), str);
-        }
+        SystemUtils.log(LoggerLevel.INFO, getClass(), str);
+    }
+
+    /**
+     * Logs a message, composed only if it is going to be logged.
+     */
+    private void log(Supplier<String> str) {
+        SystemUtils.log(LoggerLevel.INFO, getClass(), str);
     }
 
     public void setCoapMessage(boolean Encryption, String Method) {
@@ -285,10 +285,7 @@ public class CoapTransactionServer {
      * Prints a log message.
      */
     public void printLog(String str) {
-        Logger logger = SystemUtils.getDefaultLogger();
-        if (logger != null) {
-            logger.log(LoggerLevel.INFO, getClass(), str);
-        }
+        SystemUtils.log(LoggerLevel.INFO, getClass(), str);
     }
 
 }
@@ -24,23 +24,23 @@ package it.unipr.netsec.mjcoap.coap.transmission;
 
 import java.net.InetSocketAddress;
 
-import org.zoolu.util.Timer;
-import org.zoolu.util.TimerListener;
-
 import MyProject.CoapMessage;
 import it.unipr.netsec.mjcoap.coap.message.CoapMessageFormatException;
 import it.unipr.netsec.mjcoap.coap.message.CoapMessageType;
-import it.unipr.netsec.mjcoap.coap.provider.CoapId;
 import it.unipr.netsec.mjcoap.coap.provider.CoapProvider;
-import it.unipr.netsec.mjcoap.coap.provider.CoapProviderListener;
 
 /**
  * CoAP reliable reception.
+ * <p>
+ * The confirmation message is sent, and stored in the deduplication table of
+ * the provider for EXCHANGE_LIFETIME, so that it is sent again if the
+ * confirmable message is received again.
  */
 public class CoapReliableReception {
 
     /**
-     * EXCHANGE_LIFETIME [millisec]
+     * EXCHANGE_LIFETIME [millisec], that is the lifetime of the entries of the
+     * deduplication table; it is read when the provider creates its table
      */
     //public static long EXCHANGE_LIFETIME=(long)(CoapReliableTransmission.ACK_TIMEOUT*((1<<CoapReliableTransmission.MAX_RETRANSMIT)-1)*CoapReliableTransmission.ACK_RANDOM_FACTOR);
     public static long EXCHANGE_LIFETIME = 100000;
@@ -105,13 +105,6 @@ public class CoapReliableReception {
         this.coap_provider = coap_provider;
         message_id = con.getMessageId();
         remote_soaddr = con.getRemoteSoAddress();
-        CoapProviderListener this_cp_listener = new CoapProviderListener() {
-            @Override
-            public void onReceivedMessage(CoapProvider coap_provider, CoapMessage msg) {
-                processReceivedMessage(coap_provider, msg);
-            }
-        };
-        coap_provider.addListener(CoapId.getReliableTransmissionId(remote_soaddr, message_id), this_cp_listener);
         if (ack == null)
 		try {
             ack = new CoapMessage(CoapMessageType.ACK, CoapMessage.EMPTY, message_id);
@@ -122,36 +115,7 @@ public class CoapReliableReception {
         if (ack != null) {
             coap_provider.send(ack, remote_soaddr);
         }
-        TimerListener timer_listener = new TimerListener() {
-            @Override
-            public void onTimeout(Timer t) {
-                processTimeout(t);
-            }
-        };
-        Timer timer = new Timer(EXCHANGE_LIFETIME, timer_listener);
-        timer.start();
-    }
-
-    /**
-     * When a new CoAP message is received.
-     *
-     * @param coap_provider the CoAP provider
-     * @param msg the received CoAP message
-     */
-    private void processReceivedMessage(CoapProvider coap_provider, CoapMessage msg) {
-        if (ack != null) {
-            coap_provider.send(ack, msg.getRemoteSoAddress());
-        }
-    }
-
-    /**
-     * When the Timer exceeds.
-     *
-     * @param t the timer
-     */
-    private void processTimeout(Timer t) {
-        coap_provider.removeListener(CoapId.getReliableTransmissionId(remote_soaddr, message_id));
-        coap_provider = null;
+        coap_provider.getDeduplicationTable().put(remote_soaddr, message_id, ack != null ? ack.getBytes() : new byte[0]);
     }
 
 }
@@ -25,6 +25,7 @@ package it.unipr.netsec.mjcoap.coap.transmission;
 
 
 import java.net.InetSocketAddress;
+import java.util.function.Supplier;
 
 import org.zoolu.util.*;
 
@@ -78,10 +79,10 @@ public class CoapReliableTransmission {
 	long retransmission_timout;
 
 	/** Retransmission timer */
-	Timer timer;
+	TimingWheel.Timeout timer;
 
-	/** Retransmission timer */
-	TimerListener timer_listener;
+	/** Retransmission task */
+	Runnable timer_task;
 
 
 
@@ -95,6 +96,15 @@ public class CoapReliableTransmission {
 
 	/** Sends CoAP message. */
 	public void send(CoapMessage msg) {
+		start(msg);
+		coap_provider.send(msg,remote_soaddr);
+	}
+
+
+	/** Starts the reliable transmission of a CoAP message whose first transmission is made by the caller,
+	  * e.g. within a {@link CoapProvider#send(CoapMessage[],InetSocketAddress[],int) batch}.
+	  * The message must be sent right after this method returns. */
+	public void start(CoapMessage msg) {
 		if (!msg.isCON()) throw new RuntimeException("NON-confirmable message cannot be transmitted reliablely");
 		// else
 		this.msg=msg;
@@ -104,31 +114,35 @@ public class CoapReliableTransmission {
 			}
 		};
 		coap_provider.addListener(CoapId.getReliableTransmissionId(remote_soaddr,msg.getMessageId()),this_cp_listener);
-		coap_provider.send(msg,remote_soaddr);
 		// start retransmission procedure
-		timer_listener=new TimerListener() {
-			public void onTimeout(Timer t) {
-				processTimeout(t);
+		timer_task=new Runnable() {
+			public void run() {
+				processTimeout();
 			}
 		};
 		retransmission_counter=0;
 		retransmission_timout=ACK_TIMEOUT+Random.nextInt((int)(ACK_TIMEOUT*(ACK_RANDOM_FACTOR-1)));
-		timer=new Timer(retransmission_timout,timer_listener);
-		timer.start();
+		startTimer();
+	}
+
+
+	/** Starts the retransmission timer. */
+	private synchronized void startTimer() {
+		timer=TimingWheel.getDefault(Timer.DEFAULT_DAEMON_MODE).schedule(timer_task,retransmission_timout);
 	}
 
 
 	/** Stops retransmission. */
-	public void terminate() {
+	public synchronized void terminate() {
 		log("terminate()");
-		if (timer!=null) timer.halt();
+		if (timer!=null) timer.cancel();
 		timer=null;
 	}
 
 
 	/** When a new CoAP message is received. */
 	private void processReceivedMessage(CoapProvider coap_provider, CoapMessage msg) {
-		log("processReceivedMessage("+msg.toString()+")");
+		log(() -> "processReceivedMessage("+msg.toString()+")");
 		coap_provider.removeListener(CoapId.getReliableTransmissionId(remote_soaddr,msg.getMessageId()));
 		terminate();
 		if (msg.isACK()) {
@@ -141,29 +155,34 @@ public class CoapReliableTransmission {
 	}
 	
 	
-	/** When the Timer exceeds. */
-	private void processTimeout(Timer t) {
-		if (t==timer) {
+	/** When the retransmission timer expires. */
+	private void processTimeout() {
+		synchronized (this) {
+			if (timer==null || timer.isCancelled()) return;
+			// else
 			log("processTimeout()");
 			if (retransmission_counter<MAX_RETRANSMIT) {
 				coap_provider.send(msg,remote_soaddr);
 				retransmission_counter++;
 				retransmission_timout*=2;
-				timer=new Timer(retransmission_timout,timer_listener);
-				timer.start();
-			}
-			else {
-				timer=null;
-				if (reliable_transmission_listener!=null) reliable_transmission_listener.onTransmissionTimeout(this);
+				startTimer();
+				return;
 			}
+			// else
+			timer=null;
 		}
+		if (reliable_transmission_listener!=null) reliable_transmission_listener.onTransmissionTimeout(this);
 	}
 
 
 	/** Logs a message. */
 	private void log(String message) {
-		Logger logger=SystemUtils.getDefaultLogger();
-		if (logger!=null) logger.log(LoggerLevel.TRACE,getClass(),message);
+		SystemUtils.log(LoggerLevel.TRACE,getClass(),message);
+	}
+
+	/** Logs a message, composed only if it is going to be logged. */
+	private void log(Supplier<String> message) {
+		SystemUtils.log(LoggerLevel.TRACE,getClass(),message);
 	}
 
 }
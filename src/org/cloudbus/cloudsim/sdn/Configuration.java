@@ -133,6 +133,7 @@ public class Configuration {
 	public static boolean DEBUG_RESULT_WRITE_DETAIL = true;
 	public static boolean DEBUG_PRINT_DETAIL_SIZE_TIME = true;
 	public static boolean DEBUG_CHECK_OVER_TIME_REQUESTS = false;
+	public static boolean DEBUG_CHECK_INCREMENTAL_BANDWIDTH = false;	// Compare the incremental bandwidth allocation with a full one
 
 	//*/	
 }
@@ -41,6 +41,12 @@ public interface PacketScheduler {
 	public int getInTransmissionNum();
 	
 	public void setTimeOut(double timeoutSecond);
+	/**
+	 * Calculate the time at which the earliest transmission will time out.
+	 * 
+	 * @return the simulation time of the next timeout, or POSITIVE_INFINITY if no transmission can time out.
+	 */
+	public double nextTimeOutTime();
 	public LinkedList<Transmission> getTimedOutTransmission();
 	public void resetTimedOutTransmission();
 
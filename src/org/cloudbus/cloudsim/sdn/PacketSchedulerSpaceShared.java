@@ -1,8 +1,11 @@
 package org.cloudbus.cloudsim.sdn;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.PriorityQueue;
 
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.sdn.virtualcomponents.Channel;
@@ -16,20 +19,35 @@ import org.cloudbus.cloudsim.sdn.workload.Transmission;
  * @since CloudSimSDN 3.0
  */
 public class PacketSchedulerSpaceShared implements PacketScheduler {
-	protected LinkedList<Transmission> inTransmission;
-	protected LinkedList<Transmission> completed;
-	protected LinkedList<Transmission> timeoutTransmission;
+	protected TransmissionQueue inTransmission;
+	protected ArrayList<Transmission> completed;
+	protected ArrayList<Transmission> timeoutTransmission;
 	protected double previousTime;
 	
 	protected double timeoutLimit = Double.POSITIVE_INFINITY;	// INFINITE = Never timeout
 	
 	protected Channel channel;
 	
+	// All transmissions get the same bandwidth, so their remaining bytes decrease by the same amount.
+	// Instead of updating every transmission, count the bytes processed for each transmission so far:
+	// a transmission finishes when this count reaches the count at its arrival plus its size (its key).
+	private long processedBytes = 0;
+	
+	// Transmissions sorted by key, i.e. by remaining bytes. The next one to finish is on top.
+	private PriorityQueue<TransmissionQueue.Entry> finishQueue = new PriorityQueue<TransmissionQueue.Entry>(16,
+			new Comparator<TransmissionQueue.Entry>() {
+				@Override
+				public int compare(TransmissionQueue.Entry e1, TransmissionQueue.Entry e2) {
+					int c = Long.compare(e1.key, e2.key);
+					return c != 0 ? c : TransmissionQueue.ARRIVAL_ORDER.compare(e1, e2);
+				}
+			});
+	
 	public PacketSchedulerSpaceShared(Channel ch) {
 		this.channel = ch;
-		this.inTransmission = new LinkedList<Transmission>();
-		this.completed = new LinkedList<Transmission>();		
-		this.timeoutTransmission = new LinkedList<Transmission>();
+		this.inTransmission = new TransmissionQueue();
+		this.completed = new ArrayList<Transmission>();		
+		this.timeoutTransmission = new ArrayList<Transmission>();
 	}
 
 	
@@ -48,30 +66,41 @@ public class PacketSchedulerSpaceShared implements PacketScheduler {
 		//update the amount of transmission 
 		long processedThisRound =  Math.round(timeSpent * getAllocatedBandwidthPerTransmission());
 		long processedTotal = processedThisRound * inTransmission.size();
+		processedBytes += processedThisRound;
 		
 		//update transmission table; remove finished transmission
-		List<Transmission> completedTransmissions = new ArrayList<Transmission>();
-		for(Transmission transmission: inTransmission){
-			transmission.addCompletedLength(processedThisRound);
-			
-			if (transmission.isCompleted()){
-				completedTransmissions.add(transmission);
-				//this.completed.add(transmission);
-			}	
+		List<TransmissionQueue.Entry> completedTransmissions = new ArrayList<TransmissionQueue.Entry>();
+		TransmissionQueue.Entry e;
+		while((e = peekFinishQueue()) != null && e.key <= processedBytes) {
+			finishQueue.poll();
+			completedTransmissions.add(e);
 		}
+		Collections.sort(completedTransmissions, TransmissionQueue.ARRIVAL_ORDER);
 		
-		this.completed.addAll(completedTransmissions);
-		this.inTransmission.removeAll(completedTransmissions);
+		for(TransmissionQueue.Entry completedEntry: completedTransmissions) {
+			Transmission transmission = completedEntry.getTransmission();
+			transmission.addCompletedLength(transmission.getSize());
+			this.inTransmission.remove(completedEntry);
+			this.completed.add(transmission);
+		}
 		previousTime=currentTime;
 
-		List<Transmission> timeoutTransmission = getTimeoutTransmissions();
-		this.timeoutTransmission.addAll(timeoutTransmission);
-		this.inTransmission.removeAll(timeoutTransmission);
+		this.timeoutTransmission.addAll(getTimeoutTransmissions());
 		
 		//Log.printLine(CloudSim.clock() + ": Channel.updatePacketProcessing() ("+this.toString()+"):Time spent:"+timeSpent+
 		//		", BW/host:"+getAllocatedBandwidthPerTransmission()+", Processed:"+processedThisRound);
 		return processedTotal;
 	}
+	
+	private TransmissionQueue.Entry peekFinishQueue() {
+		// Removed (timed out) transmissions are dropped only when they reach the top
+		TransmissionQueue.Entry e;
+		while((e = finishQueue.peek()) != null && e.isRemoved()) {
+			finishQueue.poll();
+		}
+		return e;
+	}
+	
 	/**
 	 * Adds a new Transmission to be submitted via this Channel
 	 * @param transmission transmission initiating
@@ -83,7 +112,8 @@ public class PacketSchedulerSpaceShared implements PacketScheduler {
 		if (this.inTransmission.isEmpty()) 
 			previousTime=CloudSim.clock();
 		
-		this.inTransmission.add(transmission);
+		TransmissionQueue.Entry e = this.inTransmission.add(transmission, CloudSim.clock(), processedBytes + transmission.getSize());
+		finishQueue.add(e);
 		double eft = estimateFinishTime(transmission);
 
 		return eft;
@@ -96,7 +126,9 @@ public class PacketSchedulerSpaceShared implements PacketScheduler {
 	 */
 	@Override
 	public void removeTransmission(Transmission transmission){
-		inTransmission.remove(transmission);
+		TransmissionQueue.Entry e = inTransmission.get(transmission);
+		if(e != null)
+			inTransmission.remove(e);
 	}
 
 	/**
@@ -105,19 +137,13 @@ public class PacketSchedulerSpaceShared implements PacketScheduler {
 	 */
 	@Override
 	public LinkedList<Transmission> getCompletedTransmission(){
-		LinkedList<Transmission> returnList = new LinkedList<Transmission>();
-
-		if (!completed.isEmpty()){
-			returnList.addAll(completed);
-		}
-
-		return returnList;
+		return new LinkedList<Transmission>(completed);
 	}
 	
 
 	@Override
 	public void resetCompletedTransmission() {
-		completed = new LinkedList<Transmission>();
+		completed.clear();
 	}
 
 	@Override
@@ -127,17 +153,12 @@ public class PacketSchedulerSpaceShared implements PacketScheduler {
 
 	@Override
 	public void resetTimedOutTransmission() {
-		timeoutTransmission = new LinkedList<Transmission>();
+		timeoutTransmission.clear();
 	}
 
 	@Override
 	public LinkedList<Transmission> getTimedOutTransmission() {
-		LinkedList<Transmission> returnList = new LinkedList<Transmission>();
-
-		if (!timeoutTransmission.isEmpty()){
-			returnList.addAll(timeoutTransmission);
-		}
-		return returnList;
+		return new LinkedList<Transmission>(timeoutTransmission);
 	}
 
 	@Override
@@ -145,35 +166,45 @@ public class PacketSchedulerSpaceShared implements PacketScheduler {
 		return this.inTransmission.size();
 	}
 
+	// Bytes left to transmit
+	protected long getRemainingSize(TransmissionQueue.Entry e) {
+		return e.key - processedBytes;
+	}
 	
+	// Removes the transmissions that cannot complete before the timeout
 	protected List<Transmission> getTimeoutTransmissions() {
 		List<Transmission> timeoutTransmissions = new ArrayList<Transmission>();
 		if(this.timeoutLimit != Double.POSITIVE_INFINITY) {
 			double currentTime = CloudSim.clock();
 			double startTimeLimit = currentTime - this.timeoutLimit;
 			
-			for(Transmission tr:inTransmission) {
-				if(tr.getPacket().getStartTime() < startTimeLimit) {
-					// This Tr is started before (current time - timeout)
-					// Cannot complete.
-					timeoutTransmissions.add(tr);
-				}
+			// Transmissions started before (current time - timeout) are at the head of the queue.
+			for(TransmissionQueue.Entry e:inTransmission.pollArrivedBefore(startTimeLimit)) {
+				Transmission tr = e.getTransmission();
+				tr.addCompletedLength(tr.getSize() - getRemainingSize(e));
+				timeoutTransmissions.add(tr);
 			}
 		}
 		return timeoutTransmissions;
 	}
 
+	@Override
+	public double nextTimeOutTime() {
+		TransmissionQueue.Entry first = inTransmission.first();
+		if(first == null)
+			return Double.POSITIVE_INFINITY;
+		return first.getArrivalTime() + this.timeoutLimit;
+	}
+
 	// The earliest finish time among all transmissions in this channel 
 	@Override
 	public double nextFinishTime() {
 		//now, predicts delay to next transmission completion
 		double delay = Double.POSITIVE_INFINITY;
 
-		for (Transmission transmission:this.inTransmission){
-			double eft = estimateFinishTime(transmission);
-			if (eft<delay)
-				delay = eft;
-		}
+		TransmissionQueue.Entry e = peekFinishQueue();
+		if(e != null)
+			delay = estimateFinishTime(getRemainingSize(e));
 		
 		if(delay == Double.POSITIVE_INFINITY) {
 			return delay;
@@ -187,13 +218,18 @@ public class PacketSchedulerSpaceShared implements PacketScheduler {
 	// Estimated finish time of one transmission
 	@Override
 	public double estimateFinishTime(Transmission t) {
+		TransmissionQueue.Entry e = inTransmission.get(t);
+		return estimateFinishTime(e != null ? getRemainingSize(e) : t.getSize());
+	}
+	
+	private double estimateFinishTime(long size) {
 		double bw = getAllocatedBandwidthPerTransmission();
 		
 		if(bw == 0) {
 			return Double.POSITIVE_INFINITY;
 		}
 		
-		double eft= (double)t.getSize()/bw;
+		double eft= (double)size/bw;
 		return eft;
 	}
 	
@@ -1,7 +1,5 @@
 package org.cloudbus.cloudsim.sdn;
 
-import java.util.List;
-
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.sdn.virtualcomponents.Channel;
 import org.cloudbus.cloudsim.sdn.workload.Transmission;
@@ -31,12 +29,13 @@ public class PacketSchedulerTimeShared extends PacketSchedulerSpaceShared {
 		long processedThisRound =  Math.round(timeSpent * channel.getAllocatedBandwidth());
 		
 		//update transmission table; remove finished transmission
-		Transmission transmission = inTransmission.get(0);
+		TransmissionQueue.Entry first = inTransmission.first();
+		Transmission transmission = first.getTransmission();
 		transmission.addCompletedLength(processedThisRound);
 		
 		if (transmission.isCompleted()){
 			this.completed.add(transmission);
-			this.inTransmission.remove(transmission);
+			this.inTransmission.remove(first);
 		}
 		
 		previousTime = currentTime;
@@ -44,20 +43,35 @@ public class PacketSchedulerTimeShared extends PacketSchedulerSpaceShared {
 		//Log.printLine(CloudSim.clock() + ": Channel.updatePacketProcessing() ("+this.toString()+"):Time spent:"+timeSpent+
 		//		", BW/host:"+channel.getAllocatedBandwidth()+", Processed:"+processedThisRound);
 		
-		List<Transmission> timeoutTransmission = getTimeoutTransmissions();
-		this.timeoutTransmission.addAll(timeoutTransmission);
-		this.inTransmission.removeAll(timeoutTransmission);
+		this.timeoutTransmission.addAll(getTimeoutTransmissions());
 		
 		return processedThisRound;
 	}
 
+	@Override
+	public double addTransmission(Transmission transmission){
+		// Only the first transmission is processed, in arrival order: no need of the finish order.
+		if (this.inTransmission.isEmpty()) 
+			previousTime=CloudSim.clock();
+		
+		this.inTransmission.add(transmission, CloudSim.clock(), 0);
+		double eft = estimateFinishTime(transmission);
+
+		return eft;
+	}
+
+	@Override
+	protected long getRemainingSize(TransmissionQueue.Entry e) {
+		return e.getTransmission().getSize();
+	}
+
 	// The earliest finish time among all transmissions in this channel 
 	@Override
 	public double nextFinishTime() {
 		//now, predicts delay to next transmission completion
 		double delay = Double.POSITIVE_INFINITY;
 
-		Transmission transmission = this.inTransmission.get(0);
+		Transmission transmission = this.inTransmission.first().getTransmission();
 		double eft = estimateFinishTime(transmission);
 		if (eft<delay)
 			delay = eft;
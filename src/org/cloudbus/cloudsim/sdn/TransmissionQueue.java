@@ -0,0 +1,153 @@
+package org.cloudbus.cloudsim.sdn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+import org.cloudbus.cloudsim.sdn.workload.Transmission;
+
+/**
+ * Array-backed queue of the transmissions of a packet scheduler, in arrival order.
+ * A removed transmission leaves an empty slot, which is compacted away in place when the array is full,
+ * so removal is O(1) and the order of the other transmissions is kept.
+ * As transmissions arrive in time order, the ones that arrived before a given time are at the head of the queue.
+ */
+public class TransmissionQueue {
+	public static final class Entry {
+		private final Transmission transmission;
+		private final long seq;	// Arrival order
+		private final double arrivalTime;
+		private int index;	// Position in the array, -1 if removed
+
+		public long key;	// Scheduler-specific value
+
+		private Entry(Transmission transmission, long seq, double arrivalTime, long key) {
+			this.transmission = transmission;
+			this.seq = seq;
+			this.arrivalTime = arrivalTime;
+			this.key = key;
+		}
+
+		public Transmission getTransmission() {
+			return transmission;
+		}
+
+		public double getArrivalTime() {
+			return arrivalTime;
+		}
+
+		public boolean isRemoved() {
+			return index < 0;
+		}
+	}
+
+	// Orders entries by arrival
+	public static final Comparator<Entry> ARRIVAL_ORDER = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry e1, Entry e2) {
+			return Long.compare(e1.seq, e2.seq);
+		}
+	};
+
+	private Entry[] entries = new Entry[16];
+	private int head = 0;	// First slot in use
+	private int tail = 0;	// Next free slot
+	private int size = 0;
+	private long nextSeq = 0;
+
+	private HashMap<Transmission, Entry> entryTable = new HashMap<Transmission, Entry>();
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @param tr the transmission
+	 * @param time the arrival time, not earlier than the one of the transmissions already in the queue
+	 * @param key scheduler-specific value
+	 */
+	public Entry add(Transmission tr, double time, long key) {
+		if(tail == entries.length)
+			compact();
+
+		Entry e = new Entry(tr, nextSeq++, time, key);
+		e.index = tail;
+		entries[tail++] = e;
+		size++;
+		entryTable.put(tr, e);
+		return e;
+	}
+
+	public Entry get(Transmission tr) {
+		return entryTable.get(tr);
+	}
+
+	/**
+	 * @return the earliest arrived transmission, or null if the queue is empty.
+	 */
+	public Entry first() {
+		return size == 0 ? null : entries[head];
+	}
+
+	public boolean remove(Entry e) {
+		if(e.isRemoved())
+			return false;
+
+		entries[e.index] = null;
+		e.index = -1;
+		size--;
+		entryTable.remove(e.transmission);
+
+		if(size == 0) {
+			head = tail = 0;
+		}
+		else {
+			while(entries[head] == null)
+				head++;
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the transmissions that arrived before the given time.
+	 *
+	 * @return the removed transmissions, in arrival order.
+	 */
+	public List<Entry> pollArrivedBefore(double time) {
+		List<Entry> arrived = new ArrayList<Entry>();
+		while(size != 0 && entries[head].arrivalTime < time) {
+			Entry e = entries[head];
+			remove(e);
+			arrived.add(e);
+		}
+		return arrived;
+	}
+
+	private void compact() {
+		// Grow only if the entries in use fill more than half of the array
+		Entry[] target = entries;
+		if(size > entries.length / 2)
+			target = new Entry[entries.length * 2];
+
+		int n = 0;
+		for(int i=head; i<tail; i++) {
+			Entry e = entries[i];
+			if(e != null) {
+				e.index = n;
+				target[n++] = e;
+			}
+		}
+		if(target == entries)
+			Arrays.fill(entries, n, tail, null);
+
+		entries = target;
+		head = 0;
+		tail = n;
+	}
+}
@@ -8,6 +8,7 @@
 
 package org.cloudbus.cloudsim.sdn.monitor;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -24,13 +25,25 @@ public class MonitoringValues {
 	private ValueType valueType;
 
 	/**
-	 * The values of the monitoring metric
+	 * The values and timestamps of the monitoring metric, in a circular buffer (the capacity is a power of 2)
 	 */
-	private ArrayList<Double> values;
+	private double[] values;
+	private double[] timestamps;
+	private int head = 0;
+	private int size = 0;
+	
 	/**
-	 * The timestamps of the monitoring metric
+	 * Running sums of value*duration and of the duration above overUtilizedThreshold, per point.
+	 * The duration of a point is the time from the previous point. The sums start from an arbitrary base,
+	 * only the difference between two points is meaningful.
 	 */
-	private ArrayList<Double> timestamps;
+	private double[] valueAreas;
+	private double[] overUtilizedDurations;
+	private double overUtilizedThreshold = Double.NaN;	// Threshold of overUtilizedDurations, NaN if not calculated yet
+	
+	// Lists given to setValues() and setTimestamps()
+	private List<Double> pendingValues = new ArrayList<Double>();
+	private List<Double> pendingTimestamps = new ArrayList<Double>();
 	
 	private double maxDurationToKeep;
 
@@ -43,8 +56,10 @@ public class MonitoringValues {
 	 *            the timestamps
 	 */
 	public MonitoringValues(ValueType type, double maxDurationToKeep) {
-		values = new ArrayList<Double>();
-		timestamps = new ArrayList<Double>();
+		values = new double[16];
+		timestamps = new double[16];
+		valueAreas = new double[16];
+		overUtilizedDurations = new double[16];
 		this.valueType = type;
 		this.maxDurationToKeep = maxDurationToKeep;
 	}
@@ -56,11 +71,13 @@ public class MonitoringValues {
 	private void removeOutdatedPoints(double currentTime) {
 		double timeToRemove = currentTime - this.maxDurationToKeep;
 		
-		while(timestamps.size() > 1) {
-			double nextTime = timestamps.get(1);
+		while(size > 1) {
+			double nextTime = getTime(1);
 			if(nextTime < timeToRemove) {
-				timestamps.remove(0);
-				values.remove(0);
+				head = (head + 1) & (values.length - 1);
+				size--;
+				if(head == 0)
+					rebaseSums();	// Once per round of the buffer, to keep the sums small
 			}
 			else {
 				break;
@@ -69,7 +86,7 @@ public class MonitoringValues {
 	}
 	
 	public int getNumberOfPoints() {
-		return values.size();
+		return size;
 	}
 
 	/**
@@ -83,28 +100,179 @@ public class MonitoringValues {
 	public void add(double value, double timestamp) {
 		removeOutdatedPoints(timestamp);
 		
-		if(values.size() >= 1 && values.get(values.size()-1) == value)
+		if(size >= 1 && getValue(size-1) == value)
 		{
 			// Remove the last one (= duplicate)
-			values.remove(values.size()-1);
-			timestamps.remove(timestamps.size()-1);
+			size--;
 		}
 		
 //		if(value > 1.5) {
 //			System.err.println("Too high value!");
 //		}
-		values.add(value);
-		timestamps.add(timestamp);
+		if(size == values.length)
+			resize(size * 2);
+		append(value, timestamp);
 	}
 	
+	private void append(double value, double timestamp) {
+		int pos = index(size);
+		values[pos] = value;
+		timestamps[pos] = timestamp;
+		if(size == 0) {
+			valueAreas[pos] = 0;
+			overUtilizedDurations[pos] = 0;
+		}
+		else {
+			int prev = index(size-1);
+			double duration = timestamp - timestamps[prev];
+			valueAreas[pos] = valueAreas[prev] + value * duration;
+			overUtilizedDurations[pos] = overUtilizedDurations[prev] + (value > overUtilizedThreshold ? duration : 0);
+		}
+		size++;
+	}
+	
+	private int index(int i) {
+		return (head + i) & (values.length - 1);
+	}
+	
+	private double getValue(int i) {
+		return values[index(i)];
+	}
+	
+	private double getTime(int i) {
+		return timestamps[index(i)];
+	}
+	
+	// Time from which the point i counts. The first point counts from 0.
+	private double getPreviousTime(int i) {
+		return i > 0 ? getTime(i-1) : 0;
+	}
+	
+	// Sum of value*duration of the points from+1 ... to
+	private double getValueArea(int from, int to) {
+		return valueAreas[index(to)] - valueAreas[index(from)];
+	}
+	
+	// Duration above the threshold of the points from+1 ... to
+	private double getOverUtilizedDuration(int from, int to) {
+		return overUtilizedDurations[index(to)] - overUtilizedDurations[index(from)];
+	}
+	
+	// Number of points with timestamp < time (or <= time if inclusive)
+	private int countPointsBefore(double time, boolean inclusive) {
+		int low = 0, high = size;
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			double t = getTime(mid);
+			if(t < time || (inclusive && t == time))
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+	
+	private void resize(int capacity) {
+		double[] newValues = new double[capacity];
+		double[] newTimestamps = new double[capacity];
+		double[] newValueAreas = new double[capacity];
+		double[] newOverUtilizedDurations = new double[capacity];
+		for(int i=0; i<size; i++) {
+			int pos = index(i);
+			newValues[i] = values[pos];
+			newTimestamps[i] = timestamps[pos];
+			newValueAreas[i] = valueAreas[pos];
+			newOverUtilizedDurations[i] = overUtilizedDurations[pos];
+		}
+		values = newValues;
+		timestamps = newTimestamps;
+		valueAreas = newValueAreas;
+		overUtilizedDurations = newOverUtilizedDurations;
+		head = 0;
+		rebaseSums();
+	}
+	
+	private void rebaseSums() {
+		if(size == 0)
+			return;
+		double valueAreaBase = valueAreas[index(0)];
+		double overUtilizedBase = overUtilizedDurations[index(0)];
+		for(int i=0; i<size; i++) {
+			valueAreas[index(i)] -= valueAreaBase;
+			overUtilizedDurations[index(i)] -= overUtilizedBase;
+		}
+	}
+	
+	private void setOverUtilizedThreshold(double threshold) {
+		if(threshold == overUtilizedThreshold)
+			return;
+		
+		overUtilizedThreshold = threshold;
+		for(int i=0; i<size; i++) {
+			int pos = index(i);
+			if(i == 0) {
+				overUtilizedDurations[pos] = 0;
+			}
+			else {
+				int prev = index(i-1);
+				double duration = timestamps[pos] - timestamps[prev];
+				overUtilizedDurations[pos] = overUtilizedDurations[prev] + (values[pos] > threshold ? duration : 0);
+			}
+		}
+	}
+	
+	private void load(List<Double> newValues, List<Double> newTimestamps) {
+		int n = Math.min(newValues.size(), newTimestamps.size());
+		int capacity = 16;
+		while(capacity < n)
+			capacity *= 2;
+		
+		values = new double[capacity];
+		timestamps = new double[capacity];
+		valueAreas = new double[capacity];
+		overUtilizedDurations = new double[capacity];
+		head = 0;
+		size = 0;
+		for(int i=0; i<n; i++)
+			append(newValues.get(i), newTimestamps.get(i));
+	}
+	
+	private final List<Double> valueList = new AbstractList<Double>() {
+		@Override
+		public Double get(int i) {
+			checkIndex(i);
+			return getValue(i);
+		}
+		@Override
+		public int size() {
+			return size;
+		}
+	};
+	
+	private final List<Double> timestampList = new AbstractList<Double>() {
+		@Override
+		public Double get(int i) {
+			checkIndex(i);
+			return getTime(i);
+		}
+		@Override
+		public int size() {
+			return size;
+		}
+	};
+	
+	private void checkIndex(int i) {
+		if(i < 0 || i >= size)
+			throw new IndexOutOfBoundsException("Index: "+i+", Size: "+size);
+	}
 
 	/**
 	 * Get the values.
 	 * 
-	 * @return the value arrayList.
+	 * @return read-only view of the values.
 	 */
 	public List<Double> getValues() {
-		return values;
+		return valueList;
 	}
 
 	public double [] getValuePoints(double startTime, double endTime, double interval) {
@@ -126,13 +294,13 @@ public class MonitoringValues {
 			double t_prev = startInterval;
 			double average = 0; 
 			
-			while(i < timestamps.size()) {
-				double t = timestamps.get(i);
+			while(i < size) {
+				double t = getTime(i);
 				if(t > startInterval) {
 					if(t > endInterval) {
 						t = endInterval;
 					}
-					double v = values.get(i);
+					double v = getValue(i);
 					sum += v * (t-t_prev);
 					totalDuration += (t-t_prev);
 					t_prev = t;
@@ -159,42 +327,44 @@ public class MonitoringValues {
 	/**
 	 * Get the timestamps
 	 * 
-	 * @return the timestamps arrayList.
+	 * @return read-only view of the timestamps.
 	 */
 	public List<Double> getTimestamps() {
-		return timestamps;
+		return timestampList;
 	}
 
 	/**
-	 * Set the values.
+	 * Set the values. Points without a timestamp are dropped until the timestamps are set.
 	 * 
 	 * @param values
 	 *            the value arrayList.
 	 */
 	public void setValues(ArrayList<Double> values) {
-		this.values = values;
+		this.pendingValues = new ArrayList<Double>(values);
+		load(pendingValues, pendingTimestamps);
 	}
 
 	/**
-	 * Set the timestamps
+	 * Set the timestamps. Points without a value are dropped until the values are set.
 	 * 
 	 * @param timestamps
 	 *            the timestamps arrayList.
 	 */
 	public void setTimestamps(ArrayList<Double> timestamps) {
-		this.timestamps = timestamps;
+		this.pendingTimestamps = new ArrayList<Double>(timestamps);
+		load(pendingValues, pendingTimestamps);
 	}
 
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
-		for(int i=0; i<timestamps.size(); i++) {
+		for(int i=0; i<size; i++) {
 			if(valueType == ValueType.Utilization_Percentage)
-				sb.append(String.format("%.0f:%.2f%%\n", timestamps.get(i), values.get(i)*100));
+				sb.append(String.format("%.0f:%.2f%%\n", getTime(i), getValue(i)*100));
 			else if(valueType == ValueType.DataRate_BytesPerSecond) {
-				sb.append(String.format("%.0f:%.2f KBytesPerSeconds\n", timestamps.get(i), values.get(i)/1000));
+				sb.append(String.format("%.0f:%.2f KBytesPerSeconds\n", getTime(i), getValue(i)/1000));
 			}
 			else {
-				sb.append(String.format("%.0f:%.2f\n", timestamps.get(i), values.get(i)));
+				sb.append(String.format("%.0f:%.2f\n", getTime(i), getValue(i)));
 			}
 			
 		}
@@ -202,32 +372,35 @@ public class MonitoringValues {
 	}
 	
 	public double getAverageValue(double startTime, double endTime) {
-		// Calculate the average values between start and end time
+		// Calculate the average values between start and end time.
+		// Same result as walking the points backward from the last one that starts before endTime
+		// down to the first one that starts at or before startTime, but only the two boundary points
+		// are clipped, and the points in between are taken from the running sums.
+		int last = (endTime > 0) ? Math.min(countPointsBefore(endTime, false), size-1) : -1;
+		if(last < 0)
+			return 0;
+		int first = (startTime >= 0) ? Math.min(countPointsBefore(startTime, true), size-1) : 0;
+		first = Math.min(first, last);
+		
 		double sum = 0;
 		double totalDuration = 0;
-
-		for(int i=timestamps.size()-1; i>=0; i--)
-		{
-			double t = timestamps.get(i);
-			double t_prev =  i > 0 ? timestamps.get(i-1) : 0;
-
-			if(t_prev < endTime)
-			{
-				if(t > endTime) {
-					t = endTime;
-				}
-				if(t_prev < startTime) {
-					t = startTime;
-				}
-				double v = values.get(i);
-				sum += v * (t-t_prev);
-				totalDuration += (t-t_prev);
-
-				if(t_prev <= startTime)
-				{
-					break;
-				}
+		
+		for(int i : (first == last) ? new int[] {last} : new int[] {last, first}) {
+			double t = getTime(i);
+			double t_prev = getPreviousTime(i);
+			if(t > endTime) {
+				t = endTime;
 			}
+			if(t_prev < startTime) {
+				t = startTime;
+			}
+			double v = getValue(i);
+			sum += v * (t-t_prev);
+			totalDuration += (t-t_prev);
+		}
+		if(first+1 < last) {
+			sum += getValueArea(first, last-1);
+			totalDuration += getTime(last-1) - getTime(first);
 		}
 		
 		double average = 0; 
@@ -246,29 +419,34 @@ public class MonitoringValues {
 	 * @param timestamp
 	 */
 	public double getOverUtilizedPercentile(double startTime, double endTime, double overutilizedThreshold) {
+		// The points from the first one after startTime to the first one at or after endTime
+		int first = countPointsBefore(startTime, true);
+		if(first == size)
+			return 0;
+		int last = Math.min(Math.max(first, countPointsBefore(endTime, false)), size-1);
+		
+		setOverUtilizedThreshold(overutilizedThreshold);
 		double overutilizedDuration = 0;
 		double totalDuration = 0;
-
-		for(int i=0; i<timestamps.size(); i++) {
-			double t = timestamps.get(i);
-			double t_prev =  i-1 >= 0 ? timestamps.get(i-1) : 0;
-			if(t > startTime) {
-				if(t_prev < startTime) {
-					t_prev = startTime;
-				}
-				if(t > endTime) {
-					t = endTime;
-				}
-				double v = values.get(i);
-				if(v > overutilizedThreshold) {
-					overutilizedDuration += (t-t_prev);
-				}
-				totalDuration += (t-t_prev);
-				
-				if(t >= endTime) {
-					break;
-				}
+		
+		for(int i : (first == last) ? new int[] {first} : new int[] {first, last}) {
+			double t = getTime(i);
+			double t_prev = getPreviousTime(i);
+			if(t_prev < startTime) {
+				t_prev = startTime;
+			}
+			if(t > endTime) {
+				t = endTime;
 			}
+			double v = getValue(i);
+			if(v > overutilizedThreshold) {
+				overutilizedDuration += (t-t_prev);
+			}
+			totalDuration += (t-t_prev);
+		}
+		if(first+1 < last) {
+			overutilizedDuration += getOverUtilizedDuration(first, last-1);
+			totalDuration += getTime(last-1) - getTime(first);
 		}
 		
 		double percentile = 0; 
@@ -278,4 +456,4 @@ public class MonitoringValues {
 		
 		return percentile;
 	}
-}
\ No newline at end of file
+}
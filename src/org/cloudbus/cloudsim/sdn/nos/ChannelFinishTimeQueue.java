@@ -0,0 +1,143 @@
+package org.cloudbus.cloudsim.sdn.nos;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.cloudbus.cloudsim.sdn.virtualcomponents.Channel;
+
+/**
+ * Indexed min-heap of channels ordered by the time at which they have to be processed next
+ * (the earliest finish or timeout of their transmissions).
+ * Each channel is in the queue at most once; its time can be changed or the channel removed in O(log n).
+ */
+public class ChannelFinishTimeQueue {
+	private Channel[] channels = new Channel[16];
+	private double[] times = new double[16];
+	private int size = 0;
+	private HashMap<Channel, Integer> positions = new HashMap<Channel, Integer>();	// Channel -> index in the heap
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean contains(Channel ch) {
+		return positions.containsKey(ch);
+	}
+
+	/**
+	 * Adds a channel, or changes its time if it is already in the queue.
+	 *
+	 * @param ch the channel
+	 * @param time the simulation time at which the channel has to be processed
+	 */
+	public void update(Channel ch, double time) {
+		Integer pos = positions.get(ch);
+		if(pos == null) {
+			if(size == channels.length) {
+				channels = Arrays.copyOf(channels, size * 2);
+				times = Arrays.copyOf(times, size * 2);
+			}
+			set(size, ch, time);
+			siftUp(size++);
+			return;
+		}
+
+		double oldTime = times[pos];
+		times[pos] = time;
+		if(time < oldTime)
+			siftUp(pos);
+		else if(time > oldTime)
+			siftDown(pos);
+	}
+
+	public boolean remove(Channel ch) {
+		Integer pos = positions.remove(ch);
+		if(pos == null)
+			return false;
+
+		removeAt(pos);
+		return true;
+	}
+
+	/**
+	 * @return the time of the earliest channel, or POSITIVE_INFINITY if the queue is empty.
+	 */
+	public double peekTime() {
+		return size == 0 ? Double.POSITIVE_INFINITY : times[0];
+	}
+
+	public Channel peek() {
+		return size == 0 ? null : channels[0];
+	}
+
+	public Channel poll() {
+		if(size == 0)
+			return null;
+
+		Channel ch = channels[0];
+		positions.remove(ch);
+		removeAt(0);
+		return ch;
+	}
+
+	public void clear() {
+		Arrays.fill(channels, 0, size, null);
+		size = 0;
+		positions.clear();
+	}
+
+	private void removeAt(int pos) {
+		size--;
+		if(pos != size) {
+			Channel last = channels[size];
+			double lastTime = times[size];
+			double removedTime = times[pos];
+			set(pos, last, lastTime);
+			if(lastTime < removedTime)
+				siftUp(pos);
+			else
+				siftDown(pos);
+		}
+		channels[size] = null;
+	}
+
+	private void siftUp(int pos) {
+		Channel ch = channels[pos];
+		double time = times[pos];
+		while(pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			if(times[parent] <= time)
+				break;
+			set(pos, channels[parent], times[parent]);
+			pos = parent;
+		}
+		set(pos, ch, time);
+	}
+
+	private void siftDown(int pos) {
+		Channel ch = channels[pos];
+		double time = times[pos];
+		int half = size >>> 1;
+		while(pos < half) {
+			int child = 2 * pos + 1;
+			int right = child + 1;
+			if(right < size && times[right] < times[child])
+				child = right;
+			if(time <= times[child])
+				break;
+			set(pos, channels[child], times[child]);
+			pos = child;
+		}
+		set(pos, ch, time);
+	}
+
+	private void set(int pos, Channel ch, double time) {
+		channels[pos] = ch;
+		times[pos] = time;
+		positions.put(ch, pos);
+	}
+}
@@ -2,11 +2,15 @@ package org.cloudbus.cloudsim.sdn.nos;
 
 import MyProject.NetworkOperatingSystem;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.sdn.Configuration;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.Link;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.Node;
 import org.cloudbus.cloudsim.sdn.physicalcomponents.SDNHost;
@@ -14,6 +18,7 @@ import org.cloudbus.cloudsim.sdn.sfc.ServiceFunctionForwarder;
 import org.cloudbus.cloudsim.sdn.virtualcomponents.Channel;
 import org.cloudbus.cloudsim.sdn.virtualcomponents.SDNVm;
 import org.cloudbus.cloudsim.sdn.virtualcomponents.VirtualNetworkMapper;
+import org.cloudbus.cloudsim.sdn.workload.Transmission;
 
 public class ChannelManager {
 	protected NetworkOperatingSystem nos = null;
@@ -21,8 +26,11 @@ public class ChannelManager {
 	protected ServiceFunctionForwarder sfcForwarder = null;
 	
 	// Processing requests
-	protected HashMap<String, Channel> channelTable = new HashMap<String, Channel>();	// getKey(fromVM, toVM, flowID) -> Channel
+	protected LinkedHashMap<Long, Channel> channelTable = new LinkedHashMap<Long, Channel>();	// packKey(fromVM, toVM, flowID) -> Channel
+	protected HashMap<Integer, LinkedHashSet<Channel>> vmChannelTable = new HashMap<Integer, LinkedHashSet<Channel>>();	// VM ID -> Channels from or to the VM
 	protected List<Channel> tempRemovedChannels = new LinkedList<Channel>();
+	protected ChannelFinishTimeQueue finishTimeQueue = new ChannelFinishTimeQueue();	// Channels by next finish or timeout time
+	protected LinkedHashSet<Link> changedLinks = new LinkedHashSet<Link>();	// Links whose channels have changed since the last bandwidth adjustment
 	
 	public ChannelManager(NetworkOperatingSystem nos, VirtualNetworkMapper vnMapper,
 			ServiceFunctionForwarder sfcForwarder) {
@@ -96,65 +104,83 @@ public class ChannelManager {
 	public void addChannel(int src, int dst, int chId, Channel ch) {
 			//System.err.println("NOS.addChannel:"+getKey(src, dst, chId));
 			
-			this.channelTable.put(getChannelKey(src, dst, chId), ch);
+			Channel old = this.channelTable.put(packKey(src, dst, chId), ch);
+			if(old != null) {
+				removeVmChannel(old);
+				finishTimeQueue.remove(old);
+			}
+			addVmChannel(src, ch);
+			addVmChannel(dst, ch);
 			ch.initialize();
+			changedLinks.addAll(ch.getLinks());
 			
 			ch.adjustDedicatedBandwidthAlongLink();
 			ch.adjustSharedBandwidthAlongLink();
+			scheduleChannel(ch);
 			
 			nos.sendAdjustAllChannelEvent();		
 	//		allChannels.add(ch);
 		}
 
 	public Channel findChannel(int from, int to, int channelId) {
-		// check if there is a pre-configured channel for this application
-		Channel channel=channelTable.get(getChannelKey(from, to, channelId));
-	
-		if (channel == null) {
-			//there is no channel for specific flow, find the default channel for this link
-			channel=channelTable.get(getChannelKey(from,to));
-		}
-		return channel;
+		if(!isPackable(from, to, channelId))
+			return null;
+		return channelTable.get(packKey(from, to, channelId));
 	}
 	
 	public List<Channel> findAllChannels(int vmId) {
-		List<Channel> allChannels = new ArrayList<>();
+		LinkedHashSet<Channel> vmChannels = vmChannelTable.get(vmId);
+		if(vmChannels == null)
+			return new ArrayList<Channel>();
 		
-		for(Channel ch:channelTable.values()) {
-			if(ch.getSrcId() == vmId
-					|| ch.getDstId() == vmId) {
-				allChannels.add(ch);
-			}
-		}
+		return new ArrayList<Channel>(vmChannels);
+	}
+
+	public double addTransmission(Channel ch, Transmission transmission) {
+		// Bring the channel up to the current time before the new transmission changes its bandwidth share
+		boolean isCompleted = ch.updatePacketProcessing();
+		double eft = ch.addTransmission(transmission);
 		
-		return allChannels;
+		if(isCompleted)
+			finishTimeQueue.update(ch, CloudSim.clock());
+		else
+			scheduleChannel(ch);
+		return eft;
+	}
+	
+	private void scheduleChannel(Channel ch) {
+		// Channel has to be processed when its first transmission finishes or times out.
+		double time = Double.POSITIVE_INFINITY;
+		if(ch.getActiveTransmissionNum() != 0) {
+			time = Math.min(CloudSim.clock() + ch.nextFinishTime(), ch.nextTimeOutTime());
+		}
+		finishTimeQueue.update(ch, time);
 	}
 
-	private void updateChannel() {
-		List<String> removeCh = new ArrayList<String>();  
-		for(String key:this.channelTable.keySet()) {
-			Channel ch = this.channelTable.get(key);
+	private void updateChannel(List<Channel> channels) {
+		for(Channel ch:channels) {
 			if(ch.getActiveTransmissionNum() == 0) {
 				// No more job in channel. Delete
-				removeCh.add(key);
+				long key = packKey(ch.getSrcId(), ch.getDstId(), ch.getChId());
+				if(this.channelTable.get(key) == ch)
+					removeChannel(key);
 			}
 		}
-		
-		for(String key:removeCh) {
-			removeChannel(key);
-		}
 	}
 	
 	public Channel removeChannel(int srcVm, int dstVm, int flowId) {
 		if(findChannel(srcVm, dstVm, flowId) == null)
 			return null;
-		return removeChannel(getChannelKey(srcVm, dstVm, flowId));
+		return removeChannel(packKey(srcVm, dstVm, flowId));
 	}
 	
-	private Channel removeChannel(String key) {
+	private Channel removeChannel(long key) {
 		//System.err.println("NOS.removeChannel:"+key);
 		Channel ch = this.channelTable.remove(key);
+		removeVmChannel(ch);
+		finishTimeQueue.remove(ch);
 		ch.terminate();
+		changedLinks.addAll(ch.getLinks());
 		nos.sendAdjustAllChannelEvent();
 		tempRemovedChannels.add(ch);
 		return ch;
@@ -164,54 +190,153 @@ public class ChannelManager {
 		tempRemovedChannels = new LinkedList<Channel>();
 	}
 	
+	private void addVmChannel(int vmId, Channel ch) {
+		LinkedHashSet<Channel> vmChannels = vmChannelTable.get(vmId);
+		if(vmChannels == null) {
+			vmChannels = new LinkedHashSet<Channel>();
+			vmChannelTable.put(vmId, vmChannels);
+		}
+		vmChannels.add(ch);
+	}
+	
+	private void removeVmChannel(Channel ch) {
+		removeVmChannel(ch.getSrcId(), ch);
+		removeVmChannel(ch.getDstId(), ch);
+	}
+	
+	private void removeVmChannel(int vmId, Channel ch) {
+		LinkedHashSet<Channel> vmChannels = vmChannelTable.get(vmId);
+		if(vmChannels != null) {
+			vmChannels.remove(ch);
+			if(vmChannels.isEmpty())
+				vmChannelTable.remove(vmId);
+		}
+	}
+	
 	public boolean updateChannelBandwidth(int src, int dst, int flowId, long newBandwidth) {
-		Channel ch = this.channelTable.get(getChannelKey(src, dst, flowId));
+		Channel ch = findChannel(src, dst, flowId);
 		if(ch != null) {
 			ch.updateRequestedBandwidth(newBandwidth);
+			changedLinks.addAll(ch.getLinks());
 			return true;
 		}
 		
 		return false;
 	}
 	
+	public void updateChannelRoute(Channel ch, List<Node> nodes, List<Link> links) {
+		changedLinks.addAll(ch.getLinks());
+		ch.updateRoute(nodes, links);
+		changedLinks.addAll(ch.getLinks());
+	}
+	
+	/**
+	 * Adjusts the bandwidth of the channels passing through the links changed since the last adjustment.
+	 * The result is the same as adjustAllChannel(), as the bandwidth of a channel depends only on its links:
+	 * a dedicated channel gets its requested bandwidth, scaled down if the dedicated channels of a link request more than the link bandwidth;
+	 * a shared channel gets the lowest share, along its links, of the bandwidth left by the dedicated channels.
+	 */
+	public void adjustChangedChannels() {
+		if(changedLinks.isEmpty())
+			return;
+		
+		LinkedHashSet<Link> links = changedLinks;
+		changedLinks = new LinkedHashSet<Link>();
+		
+		// Dedicated channels depend on the bandwidth requested on their links.
+		LinkedHashSet<Link> sharedLinks = new LinkedHashSet<Link>(links);
+		for(Channel ch:getChannels(links)) {
+			if(ch.adjustDedicatedBandwidthAlongLink()) {
+				finishTimeQueue.update(ch, CloudSim.clock());
+				// Bandwidth left for shared channels is changed on all its links
+				sharedLinks.addAll(ch.getLinks());
+			}
+		}
+		
+		// Shared channels depend on the bandwidth left by dedicated channels and on the number of channels.
+		for(Channel ch:getChannels(sharedLinks)) {
+			if(ch.adjustSharedBandwidthAlongLink()) {
+				finishTimeQueue.update(ch, CloudSim.clock());
+			}
+		}
+		
+		if(Configuration.DEBUG_CHECK_INCREMENTAL_BANDWIDTH) {
+			checkChannelBandwidth();
+		}
+	}
+	
+	private LinkedHashSet<Channel> getChannels(Collection<Link> links) {
+		LinkedHashSet<Channel> channels = new LinkedHashSet<Channel>();
+		for(Link link:links) {
+			channels.addAll(link.getAllChannels());
+		}
+		return channels;
+	}
+	
+	private void checkChannelBandwidth() {
+		for(Channel ch:this.channelTable.values()) {
+			double bw = ch.getBandwidthAlongLink();
+			if(ch.getAllocatedBandwidth() != bw) {
+				System.err.println(CloudSim.clock() + ": ChannelManager.adjustChangedChannels(): "+ch
+						+": bandwidth is different from full adjustment: "+bw);
+			}
+		}
+	}
+	
 	public void adjustAllChannel() {
+		changedLinks.clear();
+		
 		for(Channel ch:this.channelTable.values()) {
 			if(ch.adjustDedicatedBandwidthAlongLink()) {
-				// Channel BW is changed. send event.
+				// Channel BW is changed. Its finish time has to be calculated again.
+				finishTimeQueue.update(ch, CloudSim.clock());
 			}
 		}
 		
 		for(Channel ch:this.channelTable.values()) {
 			if(ch.adjustSharedBandwidthAlongLink()) {
-				// Channel BW is changed. send event.
+				// Channel BW is changed. Its finish time has to be calculated again.
+				finishTimeQueue.update(ch, CloudSim.clock());
 			}
 		}
 	}
 	
 	public double nextFinishTime() {
-		double earliestEft = Double.POSITIVE_INFINITY;
-		for(Channel ch:channelTable.values()){
-			
-			double eft = ch.nextFinishTime();
-			if (eft<earliestEft){
-				earliestEft=eft;
-			}
-		}
+		double earliestEft = finishTimeQueue.peekTime() - CloudSim.clock();
 		
 		if(earliestEft == Double.POSITIVE_INFINITY) {
 			throw new IllegalArgumentException("NOS.nextFinishTime(): next finish time is infinite!");
 		}
-		return earliestEft;
+		return Math.max(earliestEft, 0);
 		
 	}
 	
+	public boolean updateAllPacketProcessing() {
+		// Bring every channel up to the current time, e.g. before monitoring
+		for(Channel ch:channelTable.values()) {
+			finishTimeQueue.update(ch, CloudSim.clock());
+		}
+		return updatePacketProcessing();
+	}
+	
 	public boolean updatePacketProcessing() {
 		boolean needSendEvent = false;
 		
 		LinkedList<Channel> completeChannels = new LinkedList<Channel>();
 		
-		// Check every channel
-		for(Channel ch:channelTable.values()){
+		// Only the channels whose first transmission finishes or times out by now
+		List<Channel> dueChannels = new ArrayList<Channel>();
+		double dueTime = CloudSim.clock() + CloudSim.getMinTimeBetweenEvents();
+		while(finishTimeQueue.peekTime() <= dueTime) {
+			dueChannels.add(finishTimeQueue.poll());
+		}
+		
+		if(dueChannels.size() < channelTable.size()) {
+			// Other channels are still transmitting.
+			needSendEvent = true;
+		}
+		
+		for(Channel ch:dueChannels){
 			boolean isCompleted = ch.updatePacketProcessing();
 			
 			if(isCompleted) {
@@ -227,11 +352,12 @@ public class ChannelManager {
 				// Something is not completed. Need to send an event. 
 				needSendEvent = true;
 			}
+			scheduleChannel(ch);
 		}
 		
 		if(completeChannels.size() != 0) {
 			nos.processCompletePackets(completeChannels);
-			updateChannel();
+			updateChannel(completeChannels);
 		}
 
 		return needSendEvent;
@@ -250,6 +376,25 @@ public class ChannelManager {
 		return channelTable.size();
 	}
 
+	// Channel key: 21 bits for each VM ID, 22 bits for the flow ID (-1 for the default flow)
+	private static final int VM_ID_BITS = 21;
+	private static final int FLOW_ID_BITS = 22;
+	
+	private static boolean isPackable(int origin, int destination, int flowId) {
+		return origin >= 0 && origin < (1 << VM_ID_BITS)
+				&& destination >= 0 && destination < (1 << VM_ID_BITS)
+				&& flowId >= -1 && flowId < (1 << FLOW_ID_BITS) - 1;
+	}
+	
+	public static long packKey(int origin, int destination, int flowId) {
+		if(!isPackable(origin, destination, flowId))
+			throw new IllegalArgumentException("packKey(): channel ID out of range: "+getChannelKey(origin, destination, flowId));
+		
+		return ((long)origin << (VM_ID_BITS + FLOW_ID_BITS))
+				| ((long)destination << FLOW_ID_BITS)
+				| (flowId + 1);
+	}
+
 	public static String getChannelKey(int origin, int destination) {
 		return origin+"-"+destination;
 	}
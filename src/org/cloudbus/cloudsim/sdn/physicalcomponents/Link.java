@@ -8,6 +8,7 @@
 
 package org.cloudbus.cloudsim.sdn.physicalcomponents;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -112,6 +113,14 @@ public class Link {
 		return channels;
 	}
 	
+	public List<Channel> getAllChannels() {
+		// Channels in both directions
+		List<Channel> channels = new ArrayList<Channel>(this.upChannels.size() + this.downChannels.size());
+		channels.addAll(this.upChannels);
+		channels.addAll(this.downChannels);
+		return channels;
+	}
+	
 	public double getDedicatedChannelAdjustFactor(Node from) {
 		double totalRequested = getRequestedBandwidthForDedicatedChannels(from);
 		
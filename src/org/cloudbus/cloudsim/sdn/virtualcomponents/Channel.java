@@ -156,12 +156,25 @@ public class Channel {
 			return false;
 		
 		double factor = this.getAdjustedRequestedBandwidth(); 
-		double requestedBandwidth = this.getRequestedBandwidth() * factor;
 		if(factor < 1.0) {
 			System.err.println("Channel.adjustDedicatedBandwidthAlongLink(): "+this+": Cannot allocate requested Bw("+this.getRequestedBandwidth()+"). Allocate only "
-					+requestedBandwidth);
+					+this.getRequestedBandwidth() * factor);
 		}			
 
+		double channelBnadwidth = getDedicatedBandwidthAlongLink();
+		
+		if(this.allocatedBandwidth != channelBnadwidth) {
+			changeBandwidth(channelBnadwidth);
+			return true;
+		}
+		
+		return false;
+	}
+	
+	private double getDedicatedBandwidthAlongLink() {
+		double factor = this.getAdjustedRequestedBandwidth(); 
+		double requestedBandwidth = this.getRequestedBandwidth() * factor;
+
 		double lowestLinkBwShared = Double.POSITIVE_INFINITY;
 		// Find the minimum bandwidth per Channel
 		for(int i=0; i<nodes.size()-1; i++) {
@@ -184,13 +197,16 @@ public class Channel {
 			channelBnadwidth = lowestLinkBwShared;	// Give more BW if available.
 		}
 		
-		if(this.allocatedBandwidth != channelBnadwidth) {
-			changeBandwidth(channelBnadwidth);
-			return true;
-		}
-		
-		return false;
+		return channelBnadwidth;
 	}
+	
+	// Bandwidth that adjustDedicated/SharedBandwidthAlongLink() would allocate with the current state of the links
+	public double getBandwidthAlongLink() {
+		if(chId == -1)
+			return getLowestSharedBandwidth();
+		return getDedicatedBandwidthAlongLink();
+	}
+	
 	public boolean adjustSharedBandwidthAlongLink() {
 		if(chId != -1) 
 			return false;
@@ -362,6 +378,10 @@ public class Channel {
 		return chId;
 	}
 
+	public List<Link> getLinks() {
+		return links;
+	}
+
 	public double getLastUpdateTime(){
 		return previousTime;
 	}
@@ -463,6 +483,10 @@ public class Channel {
 		return packetScheduler.nextFinishTime();
 	}
 
+	public double nextTimeOutTime() {
+		return packetScheduler.nextTimeOutTime();
+	}
+
 	public boolean updatePacketProcessing() {
 		long processedBytes = packetScheduler.updatePacketProcessing();
 		this.increaseProcessedBytes(processedBytes); // for monitoring
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2026 SecShield_Framework contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND. IN NO EVENT
+ * SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package org.zoolu.net;
+
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+
+
+/** Pool of heap byte buffers of a fixed size, shared by different threads.
+  * <p> Buffers are taken with {@link #acquire(int)} and given back with {@link #release(ByteBuffer)}.
+  * Requests for more bytes than the buffer size are served by a new buffer that is not pooled.
+  * When the pool is empty a new buffer is allocated; when it is full, released buffers are left to the GC.
+  */
+public class ByteBufferPool {
+
+	/** Size of the pooled buffers */
+	final int buffer_size;
+
+	/** Free buffers */
+	final ArrayBlockingQueue<ByteBuffer> free;
+
+
+
+	/** Creates a new pool.
+	  * @param buffer_size the size of the pooled buffers
+	  * @param max_free maximum number of free buffers kept in the pool */
+	public ByteBufferPool(int buffer_size, int max_free) {
+		this.buffer_size=buffer_size;
+		free=new ArrayBlockingQueue<ByteBuffer>(Math.max(max_free,1));
+	}
+
+
+	/** Gets the size of the pooled buffers. */
+	public int getBufferSize() {
+		return buffer_size;
+	}
+
+
+	/** Gets the number of free buffers in the pool. */
+	public int getFreeBuffers() {
+		return free.size();
+	}
+
+
+	/** Gets a cleared buffer.
+	  * @param len the minimum capacity
+	  * @return a buffer from the pool, or a new one */
+	public ByteBuffer acquire(int len) {
+		if (len>buffer_size) return ByteBuffer.allocate(len);
+		// else
+		ByteBuffer buf=free.poll();
+		if (buf==null) return ByteBuffer.allocate(buffer_size);
+		// else
+		buf.clear();
+		return buf;
+	}
+
+
+	/** Gives back a buffer. It must not be used anymore by the caller.
+	  * @param buf a buffer obtained from {@link #acquire(int)} */
+	public void release(ByteBuffer buf) {
+		if (buf.capacity()==buffer_size) free.offer(buf);
+	}
+
+}
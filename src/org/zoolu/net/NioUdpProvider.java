@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) 2026 SecShield_Framework contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND. IN NO EVENT
+ * SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package org.zoolu.net;
+
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.zoolu.util.LoggerLevel;
+import org.zoolu.util.SystemUtils;
+
+
+/** NioUdpProvider provides an UDP send/receive service based on NIO datagram channels.
+  * <p> Datagrams are read by one or more receiver threads, each one waiting on its own selector.
+  * With more than one receiver and SO_REUSEPORT supported, each receiver has its own channel
+  * bound to the same local socket address, so that the kernel shards incoming datagrams among them;
+  * otherwise all receivers share a single channel.
+  * <p> Received datagrams are handed off to a pool of worker threads through bounded queues,
+  * and the listener is called by the worker threads, so a slow listener never blocks the receivers.
+  * Datagrams coming from the same remote socket address are always passed to the same worker,
+  * in order of arrival. When the queue of that worker is full, the datagram is dropped.
+  * <p> Datagrams are copied from the channel into buffers taken from a pool, that are given back
+  * to the pool as soon as the listener returns.
+  * <p> Method onServiceTerminated(NioUdpProvider) is fired when all receivers have stopped.
+  */
+public class NioUdpProvider {
+
+	/** The reading buffer size */
+	public static final int BUFFER_SIZE=65535;
+
+	/** Default maximum number of received datagrams waiting for each worker */
+	public static final int DEFAULT_QUEUE_SIZE=1024;
+
+	/** Size of the pooled buffers for received datagrams; larger datagrams get a buffer of their own */
+	public static final int POOLED_BUFFER_SIZE=2048;
+
+	/** Maximum time that receivers and workers can remain active after been halted (in milliseconds) */
+	public static final long POLLING_TIME=500;
+
+	/** UDP channels (one per receiver with SO_REUSEPORT, otherwise only one) */
+	protected DatagramChannel[] channels;
+
+	/** Receiver threads */
+	Receiver[] receivers;
+
+	/** Worker threads */
+	Worker[] workers;
+
+	/** NioUdpProvider listener */
+	protected NioUdpProviderListener listener;
+
+	/** Minimum size for received packets. Shorter packets are silently discarded. */
+	protected int minimum_length=0;
+
+	/** Whether it has been halted */
+	protected volatile boolean stop=false;
+
+	/** Number of receivers still running */
+	AtomicInteger running_receivers;
+
+	/** Number of datagrams dropped because the queue of the worker was full */
+	AtomicLong dropped_packets=new AtomicLong();
+
+	/** Buffers for received datagrams */
+	ByteBufferPool buffer_pool;
+
+
+
+	/** Creates a new NioUdpProvider with one receiver and one worker.
+	  * @param local_soaddr local socket address (use port 0 for a dynamic port)
+	  * @param listener the listener */
+	public NioUdpProvider(InetSocketAddress local_soaddr, NioUdpProviderListener listener) throws IOException {
+		this(local_soaddr,1,1,DEFAULT_QUEUE_SIZE,listener);
+	}
+
+
+	/** Creates a new NioUdpProvider.
+	  * @param local_soaddr local socket address (use port 0 for a dynamic port)
+	  * @param receiver_num number of receiver threads
+	  * @param worker_num number of worker threads
+	  * @param queue_size maximum number of received datagrams waiting for each worker
+	  * @param listener the listener */
+	public NioUdpProvider(InetSocketAddress local_soaddr, int receiver_num, int worker_num, int queue_size, NioUdpProviderListener listener) throws IOException {
+		this.listener=listener;
+		receiver_num=Math.max(receiver_num,1);
+		worker_num=Math.max(worker_num,1);
+
+		DatagramChannel first=openChannel(local_soaddr,receiver_num>1);
+		boolean reuse_port=receiver_num>1 && first.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+		channels=new DatagramChannel[reuse_port? receiver_num : 1];
+		channels[0]=first;
+		try {
+			// the other channels are bound to the actual port, also when it was dynamically assigned
+			InetSocketAddress bound_soaddr=new InetSocketAddress(local_soaddr.getAddress(),getLocalPort());
+			for (int i=1; i<channels.length; i++) channels[i]=openChannel(bound_soaddr,true);
+		}
+		catch (IOException e) {
+			closeChannels();
+			throw e;
+		}
+
+		buffer_pool=new ByteBufferPool(POOLED_BUFFER_SIZE,worker_num*Math.max(queue_size,1)+receiver_num);
+		workers=new Worker[worker_num];
+		for (int i=0; i<workers.length; i++) workers[i]=new Worker(i,queue_size);
+		receivers=new Receiver[receiver_num];
+		running_receivers=new AtomicInteger(receiver_num);
+		for (int i=0; i<receivers.length; i++) receivers[i]=new Receiver(i,channels[i%channels.length]);
+		for (Worker w : workers) w.start();
+		for (Receiver r : receivers) r.start();
+	}
+
+
+	/** Opens a non-blocking channel bound to the given socket address. */
+	private static DatagramChannel openChannel(InetSocketAddress local_soaddr, boolean reuse_port) throws IOException {
+		DatagramChannel channel=(local_soaddr.getAddress()!=null && local_soaddr.getAddress() instanceof java.net.Inet6Address)?
+				DatagramChannel.open(StandardProtocolFamily.INET6) : DatagramChannel.open();
+		try {
+			if (reuse_port && channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) channel.setOption(StandardSocketOptions.SO_REUSEPORT,true);
+			channel.bind(local_soaddr);
+			channel.configureBlocking(false);
+		}
+		catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		return channel;
+	}
+
+
+	/** Gets the local port. */
+	public int getLocalPort() {
+		try {  return ((InetSocketAddress)channels[0].getLocalAddress()).getPort();  } catch (Exception e) {  return -1;  }
+	}
+
+
+	/** Gets the local socket address. */
+	public InetSocketAddress getLocalSocketAddress() {
+		try {  return (InetSocketAddress)channels[0].getLocalAddress();  } catch (Exception e) {  return null;  }
+	}
+
+
+	/** Gets the number of receiver threads. */
+	public int getReceiverNumber() {
+		return receivers.length;
+	}
+
+
+	/** Gets the number of worker threads. */
+	public int getWorkerNumber() {
+		return workers.length;
+	}
+
+
+	/** Whether receivers have their own socket bound with SO_REUSEPORT. */
+	public boolean isReusePort() {
+		return channels.length>1;
+	}
+
+
+	/** Gets the number of datagrams dropped because the queue of the worker was full. */
+	public long getDroppedPackets() {
+		return dropped_packets.get();
+	}
+
+
+	/** Whether the service is running. */
+	public boolean isRunning() {
+		return running_receivers.get()>0;
+	}
+
+
+	/** Sets the minimum size for received packets.
+	  * Packets shorter than that are silently discarded. */
+	public void setMinimumReceivedDataLength(int len) {
+		minimum_length=len;
+	}
+
+
+	/** Gets the minimum size for received packets. */
+	public int getMinimumReceivedDataLength() {
+		return minimum_length;
+	}
+
+
+	/** Sends a UDP datagram.
+	  * @param data the datagram payload
+	  * @param remote_soaddr the destination socket address
+	  * @return <i>true</i> if the datagram has been passed to the socket, <i>false</i> if the socket send buffer was full */
+	public boolean send(ByteBuffer data, InetSocketAddress remote_soaddr) throws IOException {
+		if (stop) return false;
+		return channels[0].send(data,remote_soaddr)>0;
+	}
+
+
+	/** Sends a UDP datagram.
+	  * @param data the datagram payload
+	  * @param remote_soaddr the destination socket address
+	  * @return <i>true</i> if the datagram has been passed to the socket, <i>false</i> if the socket send buffer was full */
+	public boolean send(byte[] data, int off, int len, InetSocketAddress remote_soaddr) throws IOException {
+		return send(ByteBuffer.wrap(data,off,len),remote_soaddr);
+	}
+
+
+	/** Stops running. Channels are closed as soon as all receivers have stopped. */
+	public void halt() {
+		stop=true;
+		for (Receiver r : receivers) r.selector.wakeup();
+	}
+
+
+	/** Closes all channels. */
+	private void closeChannels() {
+		for (DatagramChannel channel : channels) {
+			if (channel!=null) try {  channel.close();  } catch (IOException e) {}
+		}
+	}
+
+
+	/** When a receiver terminates. */
+	private void processReceiverTerminated(Exception error) {
+		if (error!=null) stop=true;
+		if (running_receivers.decrementAndGet()==0) {
+			stop=true;
+			closeChannels();
+			if (listener!=null) listener.onServiceTerminated(this,error);
+			listener=null;
+		}
+		else if (error!=null) halt();
+	}
+
+
+	/** Gets a String representation of the Object. */
+	public String toString() {
+		return getClass().getSimpleName()+'['+getLocalSocketAddress()+']';
+	}
+
+
+
+	/** Received datagram, waiting for a worker. */
+	static final class Datagram {
+		final ByteBuffer data;
+		final InetSocketAddress remote_soaddr;
+
+		Datagram(ByteBuffer data, InetSocketAddress remote_soaddr) {
+			this.data=data;
+			this.remote_soaddr=remote_soaddr;
+		}
+	}
+
+
+	/** Receiver thread: reads datagrams from a channel and queues them to the workers. */
+	class Receiver extends Thread {
+		final DatagramChannel channel;
+		final Selector selector;
+
+		Receiver(int index, DatagramChannel channel) throws IOException {
+			super("NioUdpProvider-receiver-"+index);
+			setDaemon(true);
+			this.channel=channel;
+			selector=Selector.open();
+			channel.register(selector,SelectionKey.OP_READ);
+		}
+
+		public void run() {
+			ByteBuffer buf=ByteBuffer.allocateDirect(BUFFER_SIZE);
+			Exception error=null;
+			try {
+				while (!stop) {
+					if (selector.select(POLLING_TIME)==0) continue;
+					for (Iterator<SelectionKey> i=selector.selectedKeys().iterator(); i.hasNext(); ) {
+						i.next();
+						i.remove();
+					}
+					// drain the channel; with a shared channel other receivers may get some datagrams first
+					SocketAddress src;
+					while (!stop && (src=channel.receive(buf))!=null) {
+						buf.flip();
+						int len=buf.remaining();
+						if (len>=minimum_length) {
+							ByteBuffer data=buffer_pool.acquire(len);
+							data.put(buf);
+							data.flip();
+							InetSocketAddress remote_soaddr=(InetSocketAddress)src;
+							Worker worker=workers[(remote_soaddr.hashCode()&0x7fffffff)%workers.length];
+							if (!worker.queue.offer(new Datagram(data,remote_soaddr))) {
+								buffer_pool.release(data);
+								dropped_packets.incrementAndGet();
+							}
+						}
+						buf.clear();
+					}
+				}
+			}
+			catch (Exception e) {
+				if (!stop) error=e;
+			}
+			try {  selector.close();  } catch (IOException e) {}
+			processReceiverTerminated(error);
+		}
+	}
+
+
+	/** Worker thread: passes the queued datagrams to the listener. */
+	class Worker extends Thread {
+		final BlockingQueue<Datagram> queue;
+
+		Worker(int index, int queue_size) {
+			super("NioUdpProvider-worker-"+index);
+			setDaemon(true);
+			queue=new ArrayBlockingQueue<Datagram>(Math.max(queue_size,1));
+		}
+
+		public void run() {
+			while (!stop) {
+				Datagram datagram;
+				try {
+					datagram=queue.poll(POLLING_TIME,TimeUnit.MILLISECONDS);
+				}
+				catch (InterruptedException e) {
+					break;
+				}
+				if (datagram==null) continue;
+				NioUdpProviderListener l=listener;
+				if (l!=null) try {  l.onReceivedPacket(NioUdpProvider.this,datagram.data,datagram.remote_soaddr);  }
+				catch (Throwable e) {
+					// the worker, and the datagram buffer, must survive a failing listener
+					SystemUtils.log(LoggerLevel.WARNING,NioUdpProvider.class,"listener failed on a datagram from "+datagram.remote_soaddr+": "+e);
+				}
+				buffer_pool.release(datagram.data);
+			}
+			queue.clear();
+		}
+	}
+
+}
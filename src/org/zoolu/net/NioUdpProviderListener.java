@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2026 SecShield_Framework contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND. IN NO EVENT
+ * SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package org.zoolu.net;
+
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+
+/** Listener for NioUdpProvider events.
+  * Methods are called by the worker threads of the NioUdpProvider,
+  * possibly concurrently when more than one worker is used.
+  */
+public interface NioUdpProviderListener {
+
+	/** When a new UDP datagram is received.
+	  * @param udp the UDP provider
+	  * @param data the datagram payload, between position and limit; the buffer is reused
+	  *  after the method returns, so the data must be copied if needed later
+	  * @param remote_soaddr the socket address of the sender */
+	public void onReceivedPacket(NioUdpProvider udp, ByteBuffer data, InetSocketAddress remote_soaddr);
+
+	/** When NioUdpProvider terminates. */
+	public void onServiceTerminated(NioUdpProvider udp, Exception error);
+}
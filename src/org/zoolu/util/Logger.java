@@ -33,4 +33,12 @@ public interface Logger {
 	  * @param message the message to be logged */
 	public void log(LoggerLevel level, Class source_class, String message);
 
+	/** Whether messages of a given level are recorded.
+	  * It lets callers skip composing messages that would be discarded.
+	  * @param level the log level
+	  * @return <i>true</i> if messages of this level may be recorded */
+	public default boolean isLoggable(LoggerLevel level) {
+		return true;
+	}
+
 }
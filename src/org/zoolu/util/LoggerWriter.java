@@ -189,6 +189,13 @@ public class LoggerWriter implements Logger {
 	}
 
 
+	@Override
+	public boolean isLoggable(LoggerLevel level) {
+		if (level==null) level=LoggerLevel.INFO;
+		return out!=null && level.getValue()>=logging_level.getValue() && (max_size<=0 || counter<max_size);
+	}
+
+
 	/** Adds a log message.
 	  * @param level the log level of this message; only messages with log level greater than or equal to the <i>logging_level</i> of the log writer are actually recorded
 	  * @param source_class the origin of this log message
@@ -26,6 +26,7 @@ package org.zoolu.util;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
+import java.util.function.Supplier;
 
 
 /** Class that collects various methods and objects.
@@ -116,7 +117,33 @@ public class SystemUtils {
 	 * @param src_class the class that log refers to
 	 * @param str the message to be logged */
 	public static void log(LoggerLevel level, Class src_class, String str) {
-		if (DEFAULT_LOGGER!=null) DEFAULT_LOGGER.log(level,src_class,str);
+		Logger logger=DEFAULT_LOGGER;
+		if (logger!=null && logger.isLoggable(level)) logger.log(level,src_class,str);
+	}
+
+	/** Logs a message that is composed only if it is going to be logged.
+	 * @param level log level 
+	 * @param str the supplier of the message to be logged */
+	public static void log(LoggerLevel level, Supplier<String> str) {
+		log(level,null,str);
+	}
+
+	/** Logs a message that is composed only if it is going to be logged.
+	 * @param level log level 
+	 * @param src_class the class that log refers to
+	 * @param str the supplier of the message to be logged */
+	public static void log(LoggerLevel level, Class<?> src_class, Supplier<String> str) {
+		Logger logger=DEFAULT_LOGGER;
+		if (logger!=null && logger.isLoggable(level)) logger.log(level,src_class,str.get());
+	}
+
+	/** Whether messages of a given level are logged by the default logger.
+	 * Callers can check it before composing a costly message, or use a {@link Supplier} of the message.
+	 * @param level log level
+	 * @return <i>true</i> if a default logger is set and it records messages of the given level */
+	public static boolean isLoggable(LoggerLevel level) {
+		Logger logger=DEFAULT_LOGGER;
+		return logger!=null && logger.isLoggable(level);
 	}
 
 }
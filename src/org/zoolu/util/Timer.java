@@ -21,8 +21,6 @@
 package org.zoolu.util;
 
 
-import java.util.TimerTask;
-
 
 /** A Timer is a simple object that fires the {@link TimerListener#onTimeout(Timer)}
   * method when the time expires.
@@ -35,29 +33,22 @@ import java.util.TimerTask;
   * <br>
   * Conversely, in 'non-daemon' mode, the program terminates only when the timer
   * expires (or is explicitly halted).
+  * <p>
+  * Timers are scheduled on the default {@link TimingWheel} of the given mode,
+  * so they expire with the resolution of its tick.
   */
 public class Timer {
 	
 	/** Whether the default mode is 'daemon', or not */
 	public static boolean DEFAULT_DAEMON_MODE=false;
 
-	/** Maximum number of attempts to schedule the task */
-	static final int MAX_ATTEPTS=2;
-
-	/** Current number of total non-daemon scheduled tasks */
-	static int scheduled_tasks=0;
-
-	/** Inner non-daemon scheduler. The program terminates only when all non-daemon timers (associated to this scheduler) have ended (for timeout or explicitly halted) */
-	static java.util.Timer scheduler=null;
-
-	/** Inner daemon scheduler. Daemon timers (associated to the this scheduler) silently terminate (without firing the corresponding timout callbacks) when all program threads end */
-	static java.util.Timer daemon_scheduler=null;
-
 
-	
 	/** Whether running in 'daemon' mode */
 	boolean daemon_mode;
 
+	/** Scheduled timeout, if running */
+	TimingWheel.Timeout timeout=null;
+
 	/** Start time */
 	long start_time=0;
 
@@ -120,10 +111,10 @@ public class Timer {
 		start_time=System.currentTimeMillis();
 		is_running=true;
 		if (time>0) {
-			TimerTask task=new TimerTask() {
+			Runnable task=new Runnable() {
 				public void run() { processInnerTimeout(); }   
 			};
-			scheduleTask(task,time,daemon_mode);
+			timeout=TimingWheel.getDefault(daemon_mode).schedule(task,time);
 		}
 		else {
 			// fire now!			
@@ -132,33 +123,6 @@ public class Timer {
 	}
 	
 	
-	/** Schedule a new task.
-	 * @param task the task to be scheduled
-	 * @param time the time
-	 * @param daemon_mode whether running in 'daemon' mode */
-	private synchronized static void scheduleTask(TimerTask task, long time, boolean daemon_mode) {
-		for (int attempts=0; attempts<MAX_ATTEPTS; attempts++) {
-			if (daemon_mode) {
-				try  {
-					if (daemon_scheduler==null) daemon_scheduler=new java.util.Timer(true); 
-					daemon_scheduler.schedule(task,time);
-					break;
-				}
-				catch (IllegalStateException e) { daemon_scheduler=null; }
-			}
-			else {
-				try  {
-					if (scheduler==null) scheduler=new java.util.Timer(false); 
-					scheduler.schedule(task,time);
-					scheduled_tasks++;
-				    break;
-				}
-				catch (IllegalStateException e) { scheduler=null; }	
-			}
-		}
-	}
-
-
 	/** Whether the timer is running.
 	  * @return <i>true</i> if it is running */
 	public boolean isRunning() {
@@ -184,13 +148,9 @@ public class Timer {
 	private synchronized void terminate() {
 		is_running=false;
 		listener=null;
-		if (!daemon_mode && time>0) {
-			// the timer has been scheduled in 'non-daemon' mode
-			scheduled_tasks--;
-			if (scheduled_tasks==0) {
-				scheduler.cancel();
-				scheduler.purge();
-			}
+		if (timeout!=null) {
+			timeout.cancel();
+			timeout=null;
 		}
 	}
 }
@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2026 SecShield_Framework contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND. IN NO EVENT
+ * SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package org.zoolu.util;
+
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/** Hashed timing wheel, for scheduling a large number of one-shot tasks.
+  * <p>
+  * Time is divided in ticks, and the wheel is an array of buckets, one per tick, that is scanned circularly
+  * by a single thread. A task is put in the bucket of the tick in which it expires, together with the number of
+  * complete rounds of the wheel that have to pass before; tasks are checked only when their bucket is scanned.
+  * Both scheduling and cancellation are O(1) and lock-free: new and cancelled tasks are passed to the wheel thread
+  * through queues, and only the wheel thread modifies the buckets.
+  * <p>
+  * Tasks expire within one tick after their time, and are run by the wheel thread; they should be short and not blocking.
+  * The wheel thread is started when a task is scheduled and terminates when no task is left, so a 'non-daemon'
+  * wheel keeps the program running only while it has some pending tasks.
+  */
+public class TimingWheel {
+
+	/** Default tick duration [millisec] */
+	public static long DEFAULT_TICK=10;
+
+	/** Default number of buckets */
+	public static int DEFAULT_WHEEL_SIZE=512;
+
+	/** Maximum number of new tasks that are moved to the buckets at each tick */
+	static final int MAX_TRANSFER=100000;
+
+	/** Default 'non-daemon' wheel */
+	static TimingWheel default_wheel=null;
+
+	/** Default 'daemon' wheel */
+	static TimingWheel default_daemon_wheel=null;
+
+
+	/** Tick duration [nanosec] */
+	final long tick_duration;
+
+	/** Buckets */
+	final Bucket[] wheel;
+
+	/** Mask for getting the bucket index from the tick */
+	final int mask;
+
+	/** Whether the wheel thread runs in 'daemon' mode */
+	final boolean daemon_mode;
+
+	/** Scheduled tasks that are not in a bucket yet */
+	final ConcurrentLinkedQueue<Timeout> added=new ConcurrentLinkedQueue<Timeout>();
+
+	/** Cancelled tasks that are still in a bucket */
+	final ConcurrentLinkedQueue<Timeout> cancelled=new ConcurrentLinkedQueue<Timeout>();
+
+	/** Number of pending tasks */
+	final AtomicInteger pending=new AtomicInteger();
+
+	/** Whether the wheel thread is running */
+	boolean running=false;
+
+	/** Time of tick 0 [nanosec] */
+	long start_time;
+
+	/** Current tick */
+	long tick;
+
+
+
+	/** Creates a new timing wheel.
+	  * @param tick the tick duration in milliseconds
+	  * @param wheel_size the number of buckets (rounded up to a power of two)
+	  * @param daemon_mode whether the wheel thread runs in 'daemon' mode */
+	public TimingWheel(long tick, int wheel_size, boolean daemon_mode) {
+		if (tick<=0) throw new IllegalArgumentException("Invalid tick duration: "+tick);
+		int size=1;
+		while (size<wheel_size && size<(1<<30)) size<<=1;
+		tick_duration=tick*1000000L;
+		wheel=new Bucket[size];
+		for (int i=0; i<size; i++) wheel[i]=new Bucket();
+		mask=size-1;
+		this.daemon_mode=daemon_mode;
+	}
+
+
+	/** Gets the default timing wheel.
+	  * @param daemon_mode whether running in 'daemon' mode
+	  * @return the wheel */
+	public static synchronized TimingWheel getDefault(boolean daemon_mode) {
+		if (daemon_mode) {
+			if (default_daemon_wheel==null) default_daemon_wheel=new TimingWheel(DEFAULT_TICK,DEFAULT_WHEEL_SIZE,true);
+			return default_daemon_wheel;
+		}
+		// else
+		if (default_wheel==null) default_wheel=new TimingWheel(DEFAULT_TICK,DEFAULT_WHEEL_SIZE,false);
+		return default_wheel;
+	}
+
+
+	/** Gets the tick duration.
+	  * @return the duration in milliseconds */
+	public long getTick() {
+		return tick_duration/1000000L;
+	}
+
+
+	/** Gets the number of pending tasks.
+	  * @return the number of tasks that are neither expired nor cancelled */
+	public int getPendingTasks() {
+		return pending.get();
+	}
+
+
+	/** Schedules a task.
+	  * @param task the task
+	  * @param time the time after which the task is run, in milliseconds
+	  * @return the scheduled task, that can be cancelled */
+	public Timeout schedule(Runnable task, long time) {
+		Timeout timeout=new Timeout(this,task,System.nanoTime()+Math.max(time,0)*1000000L);
+		pending.incrementAndGet();
+		added.add(timeout);
+		synchronized (this) {
+			if (!running) {
+				running=true;
+				start_time=System.nanoTime();
+				tick=0;
+				startThread();
+			}
+		}
+		return timeout;
+	}
+
+
+	/** Starts the wheel thread. */
+	private void startThread() {
+		Thread thread=new Thread() {
+			public void run() { runWheel(); }
+		};
+		thread.setName("TimingWheel"+(daemon_mode?"-daemon":""));
+		thread.setDaemon(daemon_mode);
+		thread.start();
+	}
+
+
+	/** Runs the wheel, until no task is pending. */
+	private void runWheel() {
+		boolean stopped=false;
+		try {
+			while (true) {
+				long deadline=start_time+(tick+1)*tick_duration;
+				long sleep_time;
+				while ((sleep_time=deadline-System.nanoTime())>0) {
+					try {  Thread.sleep(sleep_time/1000000L,(int)(sleep_time%1000000L));  } catch (InterruptedException e) {}
+				}
+				processCancelled();
+				transferAdded();
+				wheel[(int)(tick&mask)].expire();
+				tick++;
+				synchronized (this) {
+					if (pending.get()==0 && added.isEmpty()) {
+						processCancelled();
+						running=false;
+						stopped=true;
+						return;
+					}
+				}
+			}
+		}
+		finally {
+			// the thread is dying on an unexpected error: a new one goes on from the current tick
+			if (!stopped) {
+				SystemUtils.log(LoggerLevel.SEVERE,TimingWheel.class,"wheel thread terminated unexpectedly: restarted");
+				synchronized (this) {
+					startThread();
+				}
+			}
+		}
+	}
+
+
+	/** Moves the new tasks to their buckets. */
+	private void transferAdded() {
+		for (int i=0; i<MAX_TRANSFER; i++) {
+			Timeout timeout=added.poll();
+			if (timeout==null) break;
+			// else
+			if (timeout.state.get()!=Timeout.INIT) continue;
+			// else
+			long expiration_tick=(timeout.deadline-start_time+tick_duration-1)/tick_duration-1;
+			timeout.remaining_rounds=(expiration_tick-tick)/wheel.length;
+			long t=Math.max(expiration_tick,tick);
+			wheel[(int)(t&mask)].add(timeout);
+		}
+	}
+
+
+	/** Removes the cancelled tasks from their buckets. */
+	private void processCancelled() {
+		Timeout timeout;
+		while ((timeout=cancelled.poll())!=null) {
+			if (timeout.bucket!=null) timeout.bucket.remove(timeout);
+		}
+	}
+
+
+
+	/** A scheduled task. */
+	public static final class Timeout {
+
+		static final int INIT=0;
+		static final int CANCELLED=1;
+		static final int EXPIRED=2;
+
+		final TimingWheel timing_wheel;
+		final Runnable task;
+		final long deadline;
+		final AtomicInteger state=new AtomicInteger(INIT);
+		long remaining_rounds;
+		Bucket bucket;
+		Timeout next, prev;
+
+		Timeout(TimingWheel timing_wheel, Runnable task, long deadline) {
+			this.timing_wheel=timing_wheel;
+			this.task=task;
+			this.deadline=deadline;
+		}
+
+		/** Cancels the task.
+		  * @return <i>true</i> if the task was pending, <i>false</i> if it was already expired or cancelled */
+		public boolean cancel() {
+			if (!state.compareAndSet(INIT,CANCELLED)) return false;
+			// else
+			timing_wheel.pending.decrementAndGet();
+			timing_wheel.cancelled.add(this);
+			return true;
+		}
+
+		/** Whether the task has been cancelled. */
+		public boolean isCancelled() {
+			return state.get()==CANCELLED;
+		}
+
+		/** Whether the task has expired. */
+		public boolean isExpired() {
+			return state.get()==EXPIRED;
+		}
+
+		/** Runs the task, if not cancelled. */
+		void expire() {
+			if (!state.compareAndSet(INIT,EXPIRED)) return;
+			// else
+			timing_wheel.pending.decrementAndGet();
+			try {  task.run();  }
+			catch (Throwable e) {
+				// a failing task must not stop the wheel, and the other tasks, with it
+				SystemUtils.log(LoggerLevel.WARNING,TimingWheel.class,"task "+task+" failed: "+e);
+			}
+		}
+	}
+
+
+
+	/** List of the tasks of a wheel slot. */
+	static final class Bucket {
+		Timeout head, tail;
+
+		void add(Timeout timeout) {
+			timeout.bucket=this;
+			if (head==null) head=tail=timeout;
+			else {
+				tail.next=timeout;
+				timeout.prev=tail;
+				tail=timeout;
+			}
+		}
+
+		void remove(Timeout timeout) {
+			Timeout next=timeout.next;
+			if (timeout.prev!=null) timeout.prev.next=next;
+			if (next!=null) next.prev=timeout.prev;
+			if (timeout==head) head=next;
+			if (timeout==tail) tail=timeout.prev;
+			timeout.prev=timeout.next=null;
+			timeout.bucket=null;
+		}
+
+		/** Runs the tasks of this bucket that have no rounds left, and decrements the rounds of the others. */
+		void expire() {
+			Timeout timeout=head;
+			while (timeout!=null) {
+				Timeout next=timeout.next;
+				if (timeout.remaining_rounds<=0) {
+					remove(timeout);
+					timeout.expire();
+				}
+				else if (timeout.isCancelled()) remove(timeout);
+				else timeout.remaining_rounds--;
+				timeout=next;
+			}
+		}
+	}
+
+}